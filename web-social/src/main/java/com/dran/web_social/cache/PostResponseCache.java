@@ -0,0 +1,118 @@
+package com.dran.web_social.cache;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import com.dran.web_social.dto.response.PostResponse;
+import com.dran.web_social.events.PostChangedEvent;
+import com.dran.web_social.events.PostDeletedEvent;
+
+/**
+ * Cache-aside cho PostResponse theo id bài viết. Chỉ lưu phần không phụ thuộc
+ * người xem (isLiked luôn là false), nơi gọi tự gắn isLiked khi đọc. Cache có
+ * giới hạn số phần tử (LRU), TTL và bị xóa sau khi transaction thay đổi bài
+ * viết commit.
+ */
+@Component
+public class PostResponseCache {
+
+    private static class Entry {
+        private final PostResponse value;
+        private final long expiresAt;
+
+        private Entry(PostResponse value, long expiresAt) {
+            this.value = value;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    private final Map<Long, Entry> entries;
+    private final long ttlNanos;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong invalidations = new AtomicLong();
+
+    public PostResponseCache(
+            @Value("${app.cache.post.max-size:10000}") int maxSize,
+            @Value("${app.cache.post.ttl-seconds:60}") long ttlSeconds) {
+        this.ttlNanos = TimeUnit.SECONDS.toNanos(ttlSeconds);
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Entry> eldest) {
+                if (size() > maxSize) {
+                    evictions.incrementAndGet();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    public PostResponse get(Long postId, Supplier<PostResponse> loader) {
+        synchronized (entries) {
+            Entry entry = entries.get(postId);
+            if (entry != null && entry.expiresAt - System.nanoTime() > 0) {
+                hits.incrementAndGet();
+                return copy(entry.value);
+            }
+            if (entry != null) {
+                entries.remove(postId);
+            }
+        }
+        misses.incrementAndGet();
+
+        // Nếu có invalidate xảy ra trong lúc load thì không ghi giá trị (có thể đã cũ) vào cache
+        long invalidationsBeforeLoad = invalidations.get();
+        PostResponse loaded = loader.get();
+        synchronized (entries) {
+            if (invalidations.get() == invalidationsBeforeLoad) {
+                entries.put(postId, new Entry(loaded, System.nanoTime() + ttlNanos));
+            }
+        }
+        return copy(loaded);
+    }
+
+    public void invalidate(Long postId) {
+        synchronized (entries) {
+            invalidations.incrementAndGet();
+            entries.remove(postId);
+        }
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onPostChanged(PostChangedEvent event) {
+        invalidate(event.getPostId());
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onPostDeleted(PostDeletedEvent event) {
+        invalidate(event.getPostId());
+    }
+
+    public Map<String, Long> getStats() {
+        int size;
+        synchronized (entries) {
+            size = entries.size();
+        }
+        return Map.of(
+                "size", (long) size,
+                "hits", hits.get(),
+                "misses", misses.get(),
+                "evictions", evictions.get(),
+                "invalidations", invalidations.get());
+    }
+
+    private PostResponse copy(PostResponse response) {
+        return response.toBuilder().build();
+    }
+}
@@ -0,0 +1,63 @@
+package com.dran.web_social.config;
+
+import javax.sql.DataSource;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.orm.jpa.EntityManagerFactoryDependsOnPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Dọn dữ liệu từ cách toggle like cũ (dòng is_liked = false và dòng trùng
+ * (post_id, user_id)) lúc khởi động, trước khi Hibernate (ddl-auto) tạo
+ * EntityManagerFactory và thêm unique key uk_likes_post_post_user. Nếu còn
+ * dòng trùng, Hibernate chỉ log cảnh báo và bỏ qua unique key, khi đó INSERT
+ * IGNORE trong LikePostRepository không còn chống trùng được nữa.
+ */
+@Configuration
+public class LikePostCleanupConfig {
+
+    @Bean(initMethod = "run")
+    public LikePostCleanup likePostCleanup(DataSource dataSource,
+            @Value("${app.likes.startup-cleanup.enabled:true}") boolean enabled) {
+        return new LikePostCleanup(new JdbcTemplate(dataSource), enabled);
+    }
+
+    // EntityManagerFactory (và cập nhật schema của Hibernate) chỉ được khởi tạo sau khi dọn xong
+    @Configuration
+    static class LikePostCleanupDependency extends EntityManagerFactoryDependsOnPostProcessor {
+        LikePostCleanupDependency() {
+            super("likePostCleanup");
+        }
+    }
+
+    @RequiredArgsConstructor
+    @Slf4j
+    public static class LikePostCleanup {
+        private final JdbcTemplate jdbcTemplate;
+        private final boolean enabled;
+
+        public void run() {
+            if (!enabled || !tableExists()) {
+                return;
+            }
+            // Cùng câu lệnh với LikePostRepository.deleteUnliked/deleteDuplicates (repository chưa dùng được lúc này)
+            int unliked = jdbcTemplate.update("DELETE FROM likes_post WHERE is_liked = false");
+            int duplicates = jdbcTemplate.update("DELETE lp FROM likes_post lp JOIN likes_post keep "
+                    + "ON keep.post_id = lp.post_id AND keep.user_id = lp.user_id AND keep.id < lp.id");
+            if (unliked + duplicates > 0) {
+                log.info("Đã xóa {} dòng like cũ (is_liked = false) và {} dòng like trùng", unliked, duplicates);
+            }
+        }
+
+        private boolean tableExists() {
+            Integer count = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM information_schema.tables "
+                    + "WHERE table_schema = DATABASE() AND table_name = 'likes_post'", Integer.class);
+            return count != null && count > 0;
+        }
+    }
+}
@@ -51,7 +51,8 @@ public class SecurityConfig {
     };
 
     private final String[] BLACK_LIST = {
-            "/api/v1/roles/**"
+            "/api/v1/roles/**",
+            "/api/v1/admin/**"
     };
 
     @Bean
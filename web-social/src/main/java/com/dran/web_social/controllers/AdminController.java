@@ -0,0 +1,83 @@
+package com.dran.web_social.controllers;
+
+import java.util.Map;
+
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.dran.web_social.cache.PostResponseCache;
+import com.dran.web_social.redis.HotFeedIndexService;
+import com.dran.web_social.redis.TimelineIndexService;
+import com.dran.web_social.services.CommentPathBackfillService;
+import com.dran.web_social.services.CounterReconciliationService;
+import com.dran.web_social.services.ImageProcessingService;
+import com.dran.web_social.services.LikeBroadcastService;
+import com.dran.web_social.services.MediaDeletionService;
+
+import lombok.RequiredArgsConstructor;
+
+@RestController
+@RequestMapping("/api/v1/admin")
+@RequiredArgsConstructor
+public class AdminController {
+
+    private final CounterReconciliationService counterReconciliationService;
+    private final TimelineIndexService timelineIndexService;
+    private final HotFeedIndexService hotFeedIndexService;
+    private final PostResponseCache postResponseCache;
+    private final ImageProcessingService imageProcessingService;
+    private final MediaDeletionService mediaDeletionService;
+    private final LikeBroadcastService likeBroadcastService;
+    private final CommentPathBackfillService commentPathBackfillService;
+
+    @PostMapping("/counters/reconcile")
+    public ResponseEntity<Map<String, Integer>> reconcileCounters() {
+        int removedLikes = counterReconciliationService.normalizePostLikes();
+        int posts = counterReconciliationService.reconcilePostCounters();
+        int comments = counterReconciliationService.reconcileCommentCounters();
+        return ResponseEntity.ok(Map.of("removedLikes", removedLikes, "posts", posts, "comments", comments));
+    }
+
+    @PostMapping("/timeline/rebuild")
+    public ResponseEntity<Map<String, Long>> rebuildTimeline() {
+        return ResponseEntity.ok(Map.of("indexed", timelineIndexService.rebuild()));
+    }
+
+    @PostMapping("/feed/hot/rebuild")
+    public ResponseEntity<Map<String, Long>> rebuildHotFeed() {
+        return ResponseEntity.ok(Map.of("indexed", hotFeedIndexService.rebuild()));
+    }
+
+    @GetMapping("/cache/posts/stats")
+    public ResponseEntity<Map<String, Long>> getPostCacheStats() {
+        return ResponseEntity.ok(postResponseCache.getStats());
+    }
+
+    @GetMapping("/images/stats")
+    public ResponseEntity<Map<String, Long>> getImageProcessingStats() {
+        return ResponseEntity.ok(imageProcessingService.getStats());
+    }
+
+    @GetMapping("/media/deletions/stats")
+    public ResponseEntity<Map<String, Long>> getMediaDeletionStats() {
+        return ResponseEntity.ok(mediaDeletionService.getStats());
+    }
+
+    @PostMapping("/media/deletions/requeue")
+    public ResponseEntity<Map<String, Integer>> requeueMediaDeletions() {
+        return ResponseEntity.ok(Map.of("requeued", mediaDeletionService.requeueDeadLetters()));
+    }
+
+    @GetMapping("/likes/broadcast/stats")
+    public ResponseEntity<Map<String, Long>> getLikeBroadcastStats() {
+        return ResponseEntity.ok(likeBroadcastService.getStats());
+    }
+
+    @PostMapping("/comments/paths/backfill")
+    public ResponseEntity<Map<String, Integer>> backfillCommentPaths() {
+        return ResponseEntity.ok(Map.of("filled", commentPathBackfillService.backfillPaths()));
+    }
+}
@@ -19,6 +19,7 @@ import org.springframework.web.bind.annotation.RestController;
 
 import com.dran.web_social.dto.request.CommentRequest;
 import com.dran.web_social.dto.response.CommentResponse;
+import com.dran.web_social.dto.response.CursorPageResponse;
 import com.dran.web_social.models.User;
 import com.dran.web_social.services.CommentService;
 
@@ -78,6 +79,25 @@ public class CommentController {
         return ResponseEntity.ok(commentService.getCommentById(commentId, currentUsername));
     }
 
+    @GetMapping("/{commentId}/thread")
+    public ResponseEntity<CommentResponse> getCommentThread(
+            @AuthenticationPrincipal User user,
+            @PathVariable Long commentId) {
+        String currentUsername = user != null ? user.getUsername() : null;
+        return ResponseEntity.ok(commentService.getCommentThread(commentId, currentUsername));
+    }
+
+    // Tải thêm reply của một comment theo cursor, thứ tự createAt tăng dần
+    @GetMapping("/{commentId}/replies")
+    public ResponseEntity<CursorPageResponse<CommentResponse>> getReplies(
+            @AuthenticationPrincipal User user,
+            @PathVariable Long commentId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "10") int size) {
+        String currentUsername = user != null ? user.getUsername() : null;
+        return ResponseEntity.ok(commentService.getReplies(commentId, cursor, size, currentUsername));
+    }
+
     @PutMapping("/{commentId}")
     public ResponseEntity<CommentResponse> updateComment(
             @AuthenticationPrincipal User user,
@@ -2,13 +2,18 @@ package com.dran.web_social.controllers;
 
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
+import com.dran.web_social.dto.request.LikeStatusRequest;
 import com.dran.web_social.dto.response.LikeResponse;
+import com.dran.web_social.dto.response.LikeStatusResponse;
 import com.dran.web_social.models.User;
 import com.dran.web_social.services.LikeService;
 
@@ -28,6 +33,20 @@ public class LikeController {
         return ResponseEntity.ok(likeService.toggleLikePost(user.getUsername(), postId));
     }
 
+    @PutMapping("/post/{postId}")
+    public ResponseEntity<LikeResponse> likePost(
+            @AuthenticationPrincipal User user,
+            @PathVariable Long postId) {
+        return ResponseEntity.ok(likeService.likePost(user.getId(), postId));
+    }
+
+    @DeleteMapping("/post/{postId}")
+    public ResponseEntity<LikeResponse> unlikePost(
+            @AuthenticationPrincipal User user,
+            @PathVariable Long postId) {
+        return ResponseEntity.ok(likeService.unlikePost(user.getId(), postId));
+    }
+
     @PostMapping("/comment/{commentId}")
     public ResponseEntity<LikeResponse> toggleLikeComment(
             @AuthenticationPrincipal User user,
@@ -41,4 +60,12 @@ public class LikeController {
             @AuthenticationPrincipal User user) {
         return ResponseEntity.ok(likeService.isPostLikedByUser(postId, user.getId()));
     }
-}
\ No newline at end of file
+
+    // Trạng thái like của cả trang feed trong một request; người chưa đăng nhập nhận liked = false
+    @PostMapping("/status")
+    public ResponseEntity<LikeStatusResponse> getLikeStatuses(
+            @AuthenticationPrincipal User user,
+            @RequestBody LikeStatusRequest request) {
+        return ResponseEntity.ok(likeService.getLikeStatuses(user != null ? user.getId() : null, request));
+    }
+}
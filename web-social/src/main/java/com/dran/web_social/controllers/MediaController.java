@@ -0,0 +1,47 @@
+package com.dran.web_social.controllers;
+
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.http.CacheControl;
+import org.springframework.http.MediaType;
+import org.springframework.http.MediaTypeFactory;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.dran.web_social.custom.exception.ResourceNotFoundException;
+import com.dran.web_social.services.impl.LocalStorageCloudService;
+
+import lombok.RequiredArgsConstructor;
+
+// Phục vụ file của LocalStorageCloudService; Range và If-None-Match do Spring xử lý khi trả về Resource
+@RestController
+@RequestMapping("/api/v1/media")
+@ConditionalOnProperty(name = "app.storage.type", havingValue = "local")
+@RequiredArgsConstructor
+public class MediaController {
+
+    private final LocalStorageCloudService localStorageCloudService;
+
+    @GetMapping("/{publicId}")
+    public ResponseEntity<Resource> getMedia(@PathVariable String publicId) {
+        Path path = localStorageCloudService.resolve(publicId)
+                .orElseThrow(() -> new ResourceNotFoundException("Không tìm thấy media: " + publicId));
+        FileSystemResource resource = new FileSystemResource(path);
+        MediaType contentType = MediaTypeFactory.getMediaType(resource)
+                .orElse(MediaType.APPLICATION_OCTET_STREAM);
+
+        // Mỗi publicId gắn với đúng một lần upload và file không bao giờ bị ghi đè: ETag mạnh và cache lâu dài
+        return ResponseEntity.ok()
+                .eTag("\"" + publicId + "\"")
+                .cacheControl(CacheControl.maxAge(365, TimeUnit.DAYS).cachePublic().immutable())
+                .contentType(contentType)
+                .body(resource);
+    }
+}
@@ -21,8 +21,10 @@ import org.springframework.web.bind.annotation.RequestPart;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.multipart.MultipartFile;
 
+import com.dran.web_social.custom.exception.BadRequestException;
 import com.dran.web_social.custom.exception.ResourceNotFoundException;
 import com.dran.web_social.dto.request.PostRequest;
+import com.dran.web_social.dto.response.CursorPageResponse;
 import com.dran.web_social.dto.response.PostResponse;
 import com.dran.web_social.models.User;
 import com.dran.web_social.services.PostService;
@@ -37,15 +39,19 @@ public class PostController {
 
     private final PostService postService;
 
-    // Tạo bài viết
+    // Tạo bài viết. async=true trả về ngay với media PENDING, trạng thái upload được gửi qua
+    // /topic/post/{id}/media
     @PostMapping(consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
     public ResponseEntity<PostResponse> createPostWithMedia(
             @AuthenticationPrincipal User user,
             @RequestPart(value = "post", required = false) String post,
-            @RequestPart(value = "files", required = false) List<MultipartFile> files) {
+            @RequestPart(value = "files", required = false) List<MultipartFile> files,
+            @RequestParam(defaultValue = "false") boolean async) {
         PostRequest request = JsonUtil.parseJson(post, PostRequest.class);
-        return ResponseEntity.status(HttpStatus.CREATED)
-                .body(postService.createPostWithMedia(user.getUsername(), request, files));
+        PostResponse response = async
+                ? postService.createPostWithMediaAsync(user.getUsername(), request, files)
+                : postService.createPostWithMedia(user.getUsername(), request, files);
+        return ResponseEntity.status(HttpStatus.CREATED).body(response);
     }
 
     @GetMapping("/{id}")
@@ -60,14 +66,31 @@ public class PostController {
         return ResponseEntity.ok(postService.getPostByIdWithLikeStatus(id, user.getUsername()));
     }
 
+    // Truyền cursor (rỗng cho trang đầu) để dùng keyset pagination, khi đó bỏ qua page/sortBy/direction.
+    // rank=hot trả về bảng xếp hạng bài viết hot, bỏ qua sortBy/direction
     @GetMapping
-    public ResponseEntity<Page<PostResponse>> getAllPosts(
+    public ResponseEntity<?> getAllPosts(
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "10") int size,
             @RequestParam(defaultValue = "createAt") String sortBy,
             @RequestParam(defaultValue = "desc") String direction,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) String rank,
             @AuthenticationPrincipal User user) {
 
+        if (rank != null) {
+            if (!rank.equalsIgnoreCase("hot")) {
+                throw new BadRequestException("Kiểu xếp hạng không hợp lệ: " + rank);
+            }
+            return ResponseEntity.ok(postService.getHotPosts(PageRequest.of(page, size),
+                    user != null ? user.getUsername() : null));
+        }
+
+        if (cursor != null) {
+            return ResponseEntity.ok(postService.getPostsByCursor(cursor, size,
+                    user != null ? user.getUsername() : null));
+        }
+
         Sort sort = direction.equalsIgnoreCase("asc") ? Sort.by(sortBy).ascending() : Sort.by(sortBy).descending();
 
         Pageable pageable = PageRequest.of(page, size, sort);
@@ -79,14 +102,24 @@ public class PostController {
     }
 
     @GetMapping("/user/{username}")
-    public ResponseEntity<Page<PostResponse>> getPostsByUser(
+    public ResponseEntity<?> getPostsByUser(
             @PathVariable String username,
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "10") int size,
             @RequestParam(defaultValue = "createAt") String sortBy,
             @RequestParam(defaultValue = "desc") String direction,
+            @RequestParam(required = false) String cursor,
             @AuthenticationPrincipal User currentUser) {
 
+        if (cursor != null) {
+            try {
+                return ResponseEntity.ok(postService.getPostsByUserByCursor(username, cursor, size,
+                        currentUser != null ? currentUser.getUsername() : null));
+            } catch (ResourceNotFoundException e) {
+                return ResponseEntity.ok(CursorPageResponse.empty());
+            }
+        }
+
         try {
             Sort sort = direction.equalsIgnoreCase("asc") ? Sort.by(sortBy).ascending() : Sort.by(sortBy).descending();
             Pageable pageable = PageRequest.of(page, size, sort);
@@ -0,0 +1,8 @@
+package com.dran.web_social.custom.exception;
+
+// Server tạm thời quá tải, client có thể thử lại sau
+public class ServiceUnavailableException extends RuntimeException {
+    public ServiceUnavailableException(String message) {
+        super(message);
+    }
+}
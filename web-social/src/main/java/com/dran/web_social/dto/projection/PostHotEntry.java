@@ -0,0 +1,13 @@
+package com.dran.web_social.dto.projection;
+
+import java.util.Date;
+
+public interface PostHotEntry {
+    Long getId();
+
+    int getLikesCount();
+
+    int getCommentsCount();
+
+    Date getCreateAt();
+}
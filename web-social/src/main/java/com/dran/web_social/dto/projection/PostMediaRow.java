@@ -0,0 +1,16 @@
+package com.dran.web_social.dto.projection;
+
+import com.dran.web_social.models.Media.MediaStatus;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+@Getter
+@AllArgsConstructor
+public class PostMediaRow {
+    private final Long postId;
+    private final Long id;
+    private final String url;
+    private final String type;
+    private final MediaStatus status;
+}
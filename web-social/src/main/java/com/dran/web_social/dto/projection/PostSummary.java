@@ -0,0 +1,26 @@
+package com.dran.web_social.dto.projection;
+
+import java.util.Date;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Các cột của bài viết và tác giả mà PostResponse cần, được select bằng
+ * constructor expression để không tạo entity được quản lý bởi persistence
+ * context.
+ */
+@Getter
+@AllArgsConstructor
+public class PostSummary {
+    private final Long id;
+    private final String content;
+    private final int likesCount;
+    private final int commentsCount;
+    private final Date createAt;
+    private final Date updateAt;
+    private final String userName;
+    private final String firstName;
+    private final String lastName;
+    private final String avatar;
+}
@@ -0,0 +1,11 @@
+package com.dran.web_social.dto.projection;
+
+import java.util.Date;
+
+public interface PostTimelineEntry {
+    Long getId();
+
+    Long getUserId();
+
+    Date getCreateAt();
+}
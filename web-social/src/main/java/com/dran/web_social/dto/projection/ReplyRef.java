@@ -0,0 +1,7 @@
+package com.dran.web_social.dto.projection;
+
+public interface ReplyRef {
+    Long getId();
+
+    Long getParentId();
+}
@@ -0,0 +1,17 @@
+package com.dran.web_social.dto.request;
+
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class LikeStatusRequest {
+    private List<Long> postIds;
+    private List<Long> commentIds;
+}
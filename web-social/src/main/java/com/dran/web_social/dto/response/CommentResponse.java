@@ -34,6 +34,8 @@ public class CommentResponse {
 
     // Replies
     private List<CommentResponse> replies;
+    // Số comment có path trong cây con, chỉ có ở getCommentThread
+    private Integer threadSize;
 
     // Current user interaction
     @JsonProperty("isLiked")
@@ -0,0 +1,27 @@
+package com.dran.web_social.dto.response;
+
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class CursorPageResponse<T> {
+    private List<T> content;
+    private String nextCursor;
+    private boolean hasNext;
+    private int size;
+
+    public static <T> CursorPageResponse<T> empty() {
+        return CursorPageResponse.<T>builder()
+                .content(List.of())
+                .hasNext(false)
+                .size(0)
+                .build();
+    }
+}
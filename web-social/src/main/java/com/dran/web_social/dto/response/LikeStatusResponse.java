@@ -0,0 +1,18 @@
+package com.dran.web_social.dto.response;
+
+import java.util.Map;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Trạng thái like theo id; id không tồn tại sẽ không có trong map
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class LikeStatusResponse {
+    private Map<Long, LikeResponse> posts;
+    private Map<Long, LikeResponse> comments;
+}
@@ -13,4 +13,6 @@ public class MediaResponse {
     private Long id;
     private String url;
     private String type;
+    // PENDING | READY | FAILED, frontend hiển thị placeholder khi chưa READY
+    private String status;
 }
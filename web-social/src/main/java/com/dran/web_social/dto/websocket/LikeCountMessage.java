@@ -0,0 +1,15 @@
+package com.dran.web_social.dto.websocket;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class LikeCountMessage {
+    private Long postId;
+    private int likesCount;
+}
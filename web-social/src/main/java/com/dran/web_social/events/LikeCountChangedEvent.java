@@ -0,0 +1,18 @@
+package com.dran.web_social.events;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+// User like/unlike bài viết hoặc comment (delta = 1 hoặc -1), counter và index được cập nhật sau khi transaction commit
+@Getter
+@AllArgsConstructor
+public class LikeCountChangedEvent {
+    private final Target target;
+    private final Long targetId;
+    private final Long userId;
+    private final int delta;
+
+    public enum Target {
+        POST, COMMENT
+    }
+}
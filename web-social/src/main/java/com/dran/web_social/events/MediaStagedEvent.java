@@ -0,0 +1,13 @@
+package com.dran.web_social.events;
+
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+// Media PENDING đã được lưu cùng file tạm, chờ worker upload
+@Getter
+@AllArgsConstructor
+public class MediaStagedEvent {
+    private final List<Long> mediaIds;
+}
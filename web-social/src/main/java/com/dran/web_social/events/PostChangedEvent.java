@@ -0,0 +1,11 @@
+package com.dran.web_social.events;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+// Nội dung, media hoặc counter của bài viết đã thay đổi
+@Getter
+@AllArgsConstructor
+public class PostChangedEvent {
+    private final Long postId;
+}
@@ -0,0 +1,14 @@
+package com.dran.web_social.events;
+
+import java.util.Date;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+@Getter
+@AllArgsConstructor
+public class PostCreatedEvent {
+    private final Long postId;
+    private final Long userId;
+    private final Date createAt;
+}
@@ -0,0 +1,11 @@
+package com.dran.web_social.events;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+@Getter
+@AllArgsConstructor
+public class PostDeletedEvent {
+    private final Long postId;
+    private final Long userId;
+}
@@ -8,23 +8,36 @@ import org.mapstruct.Mapper;
 import org.mapstruct.Mapping;
 import org.springframework.beans.factory.annotation.Autowired;
 
+import java.util.List;
+import java.util.Set;
+
 @Mapper(componentModel = "spring")
 public abstract class CommentMapper {
 
     @Autowired
     protected LikeService likeService;
 
+    // Dùng cho một comment đơn lẻ; khi map nhiều comment hãy lấy likedCommentIds một lần rồi gọi bản 3 tham số
+    public CommentResponse commentToCommentResponse(CommentPost comment, Long currentUserId) {
+        Set<Long> likedCommentIds = currentUserId == null || comment.getDeleted()
+                ? Set.of()
+                : likeService.getLikedCommentIds(currentUserId, List.of(comment.getId()));
+        return commentToCommentResponse(comment, currentUserId, likedCommentIds);
+    }
+
     @Mapping(target = "userName", expression = "java(getUsername(comment))")
     @Mapping(target = "userFullName", expression = "java(getFullName(comment))")
     @Mapping(target = "userAvatar", expression = "java(getAvatar(comment))")
     @Mapping(target = "content", expression = "java(getContent(comment))")
     @Mapping(target = "parentId", source = "comment.parent.id")
     @Mapping(target = "level", source = "comment.level")
-    @Mapping(target = "isLiked", expression = "java(isLikedByCurrentUser(comment, currentUserId))")
+    @Mapping(target = "isLiked", expression = "java(isLikedByCurrentUser(comment, likedCommentIds))")
     @Mapping(target = "isOwner", expression = "java(isOwner(comment, currentUserId))")
     @Mapping(target = "replies", ignore = true) // Vẫn ignore vì replies được xử lý trong CommentUtil
+    @Mapping(target = "threadSize", ignore = true)
     @Mapping(target = "replyingTo", expression = "java(comment.getParent() != null ? getUsername(comment.getParent()) : null)")
-    public abstract CommentResponse commentToCommentResponse(CommentPost comment, Long currentUserId);
+    public abstract CommentResponse commentToCommentResponse(CommentPost comment, Long currentUserId,
+            Set<Long> likedCommentIds);
 
     protected String getUsername(CommentPost comment) {
         return comment.getDeleted() ? "[deleted]" : comment.getUser().getUsername();
@@ -48,10 +61,10 @@ public abstract class CommentMapper {
         return comment.getDeleted() ? "[Comment đã bị xóa]" : comment.getContent();
     }
 
-    protected boolean isLikedByCurrentUser(CommentPost comment, Long currentUserId) {
-        if (currentUserId == null || comment.getDeleted())
+    protected boolean isLikedByCurrentUser(CommentPost comment, Set<Long> likedCommentIds) {
+        if (comment.getDeleted())
             return false;
-        return likeService.isCommentLikedByUser(comment.getId(), currentUserId);
+        return likedCommentIds.contains(comment.getId());
     }
 
     protected boolean isOwner(CommentPost comment, Long currentUserId) {
@@ -7,14 +7,13 @@ import org.mapstruct.Mapper;
 import org.mapstruct.Mapping;
 import org.mapstruct.Named;
 
+import com.dran.web_social.dto.projection.PostMediaRow;
+import com.dran.web_social.dto.projection.PostSummary;
 import com.dran.web_social.dto.request.PostRequest;
 import com.dran.web_social.dto.response.MediaResponse;
 import com.dran.web_social.dto.response.PostResponse;
-import com.dran.web_social.models.LikePost;
 import com.dran.web_social.models.Media;
 import com.dran.web_social.models.Post;
-import com.dran.web_social.services.LikeService;
-import com.dran.web_social.services.UserService;
 
 @Mapper(componentModel = "spring")
 public interface PostMapper {
@@ -25,32 +24,35 @@ public interface PostMapper {
     @Mapping(target = "comments", ignore = true)
     Post postRequestToPost(PostRequest request);
 
-    @Mapping(target = "userName", source = "post.user.username")
-    @Mapping(target = "userFullName", expression = "java(getFullName(post))")
-    @Mapping(target = "userAvatar", source = "post.user.avatar")
-    @Mapping(target = "media", source = "post", qualifiedByName = "getMediaList")
-    @Mapping(target = "isLiked", expression = "java(isLikedByUser(post, username, likeService, userService))")
-    @Mapping(target = "likesCount", expression = "java(getLikesCount(post))")
-    @Mapping(target = "commentsCount", expression = "java(getCommentsCount(post))")
-    @Mapping(target = "sharesCount", expression = "java(0)")
-    PostResponse postToPostResponseWithLikeStatus(Post post, String username, LikeService likeService,
-            UserService userService);
-
     @Mapping(target = "userName", source = "user.username")
     @Mapping(target = "userFullName", expression = "java(getFullName(post))")
     @Mapping(target = "userAvatar", source = "user.avatar")
     @Mapping(target = "media", source = "post", qualifiedByName = "getMediaList")
     @Mapping(target = "isLiked", expression = "java(false)")
-    @Mapping(target = "likesCount", expression = "java(getLikesCount(post))")
-    @Mapping(target = "commentsCount", expression = "java(getCommentsCount(post))")
+    @Mapping(target = "likesCount", source = "likesCount")
+    @Mapping(target = "commentsCount", source = "commentsCount")
     @Mapping(target = "sharesCount", expression = "java(0)")
     PostResponse postToPostResponse(Post post);
 
+    // Dựng PostResponse từ projection của feed, media đã được nhóm sẵn theo bài viết
+    @Mapping(target = "userName", source = "summary.userName")
+    @Mapping(target = "userFullName", expression = "java(fullName(summary.getFirstName(), summary.getLastName(), summary.getUserName()))")
+    @Mapping(target = "userAvatar", source = "summary.avatar")
+    @Mapping(target = "media", source = "media")
+    @Mapping(target = "isLiked", expression = "java(false)")
+    @Mapping(target = "sharesCount", expression = "java(0)")
+    PostResponse postSummaryToPostResponse(PostSummary summary, List<MediaResponse> media);
+
+    @Mapping(target = "status", expression = "java(statusName(row.getStatus()))")
+    MediaResponse postMediaRowToMediaResponse(PostMediaRow row);
+
     @Named("getFullName")
     default String getFullName(Post post) {
-        String firstName = post.getUser().getFirstName();
-        String lastName = post.getUser().getLastName();
+        return fullName(post.getUser().getFirstName(), post.getUser().getLastName(), post.getUser().getUsername());
+    }
 
+    @Named("fullName")
+    default String fullName(String firstName, String lastName, String userName) {
         if (firstName != null && lastName != null) {
             return firstName + " " + lastName;
         } else if (firstName != null) {
@@ -58,7 +60,7 @@ public interface PostMapper {
         } else if (lastName != null) {
             return lastName;
         } else {
-            return post.getUser().getUsername();
+            return userName;
         }
     }
 
@@ -72,39 +74,16 @@ public interface PostMapper {
                 .collect(Collectors.toList());
     }
 
-    default boolean isLikedByUser(Post post, String username, LikeService likeService, UserService userService) {
-        if (username == null || likeService == null || userService == null) {
-            return false;
-        }
-        try {
-            // Get user by username to get userId
-            var userResponse = userService.getUserByUserName(username);
-            Long userId = userResponse.getId();
-            return likeService.isPostLikedByUser(post.getId(), userId);
-        } catch (Exception e) {
-            return false;
-        }
-    }
-
-    default int getLikesCount(Post post) {
-        if (post.getLikes() == null) {
-            return 0;
-        }
-        return (int) post.getLikes().stream()
-                .filter(LikePost::isLiked) // ✅ chỉ lấy like thật
-                .count();
-    }
-
-    default int getCommentsCount(Post post) {
-        if (post.getComments() == null) {
-            return 0;
-        }
-        return (int) post.getComments().stream().filter(c -> c.getDeleted() == false).count();
-    }
-
     @Mapping(target = "id", source = "id")
     @Mapping(target = "url", source = "url")
     @Mapping(target = "type", source = "type")
+    @Mapping(target = "status", expression = "java(statusName(media.getStatus()))")
     MediaResponse mediaToMediaResponse(Media media);
 
+    // Media tạo trước khi có cột status được coi là READY
+    @Named("statusName")
+    default String statusName(Media.MediaStatus status) {
+        return status != null ? status.name() : Media.MediaStatus.READY.name();
+    }
+
 }
@@ -3,11 +3,19 @@ package com.dran.web_social.models;
 import java.util.HashSet;
 import java.util.Set;
 
+import org.hibernate.annotations.DynamicUpdate;
+
+import com.dran.web_social.utils.CommentPathUtil;
+
 import jakarta.persistence.*;
 import lombok.*;
 
 @Entity
-@Table(name = "comments_post")
+@Table(name = "comments_post", indexes = {
+        @Index(name = "idx_comments_parent_create_at", columnList = "parent_id, create_at, id"),
+        @Index(name = "idx_comments_path", columnList = "path")
+})
+@DynamicUpdate
 @Getter
 @Setter
 @NoArgsConstructor
@@ -19,6 +27,10 @@ public class CommentPost extends BaseEntity {
     private int likesCount;
     private int repliesCount;
 
+    // Id của các comment từ gốc tới chính nó, ví dụ /12/340/9981/; cây con là các comment có path bắt đầu bằng path này
+    @Column(length = CommentPathUtil.MAX_LENGTH)
+    private String path;
+
     @Column(name = "deleted", nullable = false)
     private Boolean deleted = false;
 
@@ -30,11 +42,12 @@ public class CommentPost extends BaseEntity {
     @JoinColumn(name = "user_id")
     private User user;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "parent_id")
     private CommentPost parent;
 
-    @OneToMany(mappedBy = "parent", cascade = CascadeType.ALL, orphanRemoval = true, fetch = FetchType.EAGER)
+    // Không load kèm comment; reply được đọc theo trang qua CommentRepository
+    @OneToMany(mappedBy = "parent", cascade = CascadeType.ALL, orphanRemoval = true, fetch = FetchType.LAZY)
     private Set<CommentPost> replies = new HashSet<>();
 
     @OneToMany(mappedBy = "comment", cascade = CascadeType.ALL, orphanRemoval = true)
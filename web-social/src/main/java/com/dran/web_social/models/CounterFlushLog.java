@@ -0,0 +1,22 @@
+package com.dran.web_social.models;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+/**
+ * Các lần flush counter like đã được cộng vào database. Mỗi lần flush có một
+ * generation id, được ghi cùng transaction với batch UPDATE counter, nên flush
+ * lại cùng một key flushing (sau khi xóa key trên Redis bị lỗi) không cộng
+ * delta hai lần.
+ */
+@Entity
+@Table(name = "counter_flush_log")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class CounterFlushLog extends BaseEntity {
+    @Column(nullable = false, unique = true, length = 36)
+    private String generation;
+}
@@ -4,7 +4,10 @@ import jakarta.persistence.*;
 import lombok.*;
 
 @Entity
-@Table(name = "likes_post")
+// Mỗi user chỉ có một dòng cho mỗi bài viết; unlike xóa dòng nên có dòng nghĩa là đã like
+@Table(name = "likes_post", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_likes_post_post_user", columnNames = { "post_id", "user_id" })
+})
 @Getter
 @Setter
 @NoArgsConstructor
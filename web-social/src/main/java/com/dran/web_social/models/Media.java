@@ -1,10 +1,16 @@
 package com.dran.web_social.models;
 
+import java.util.Date;
+
 import jakarta.persistence.*;
 import lombok.*;
 
 @Entity
-@Table(name = "media")
+@Table(name = "media", indexes = {
+        @Index(name = "idx_media_status_next_attempt", columnList = "status, next_attempt_at"),
+        @Index(name = "idx_media_content_hash", columnList = "content_hash"),
+        @Index(name = "idx_media_public_id", columnList = "public_id")
+})
 @Getter
 @Setter
 @NoArgsConstructor
@@ -14,7 +20,24 @@ public class Media extends BaseEntity {
     private String url;
     private String type;
     private String publicId;
+    // SHA-256 của file gốc, dùng để dùng lại asset đã upload; nhiều media có thể chung một publicId
+    @Column(length = 64)
+    private String contentHash;
     @ManyToOne
     @JoinColumn(name = "post_id")
     private Post post;
+
+    // null với các bản ghi cũ, được coi như READY
+    @Enumerated(EnumType.STRING)
+    private MediaStatus status;
+
+    // File tạm trên đĩa chờ worker upload (chỉ có khi PENDING)
+    private String stagingPath;
+    private String contentType;
+    private int attempts;
+    private Date nextAttemptAt;
+
+    public enum MediaStatus {
+        PENDING, READY, FAILED
+    }
 }
@@ -0,0 +1,46 @@
+package com.dran.web_social.models;
+
+import java.util.Date;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+/**
+ * Asset cần xóa trên storage, được ghi cùng transaction với thao tác xóa/thay
+ * media. Dispatcher đọc bảng này và xóa trên storage theo lô; bản ghi bị xóa
+ * khi xong, lỗi quá số lần cho phép thì chuyển DEAD để xử lý thủ công.
+ * Trước khi xóa, dispatcher khóa bản ghi, kiểm tra không còn media tham chiếu
+ * rồi đặt confirmed; từ đó asset không được gắn vào media mới nữa.
+ */
+@Entity
+@Table(name = "media_deletion_outbox", indexes = {
+        @Index(name = "idx_media_deletion_status_next_attempt", columnList = "status, next_attempt_at"),
+        @Index(name = "idx_media_deletion_public_id", columnList = "public_id")
+})
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class MediaDeletionOutbox extends BaseEntity {
+    @Column(nullable = false)
+    private String publicId;
+    // Loại media (image, video, ...) để chọn resource type khi xóa trên storage
+    private String mediaType;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private OutboxStatus status;
+
+    private int attempts;
+    private Date nextAttemptAt;
+    @Column(length = 1000)
+    private String lastError;
+    // Đã xác nhận không còn media tham chiếu, asset sẽ bị xóa và không được dùng lại
+    @Column(nullable = false)
+    private boolean confirmed;
+
+    public enum OutboxStatus {
+        PENDING, DEAD
+    }
+}
@@ -3,11 +3,19 @@ package com.dran.web_social.models;
 import java.util.HashSet;
 import java.util.Set;
 
+import org.hibernate.annotations.BatchSize;
+import org.hibernate.annotations.DynamicUpdate;
+
 import jakarta.persistence.*;
 import lombok.*;
 
 @Entity
-@Table(name = "posts")
+@Table(name = "posts", indexes = {
+        @Index(name = "idx_posts_create_at_id", columnList = "create_at, id"),
+        @Index(name = "idx_posts_user_create_at_id", columnList = "user_id, create_at, id")
+})
+// Chỉ ghi các cột thay đổi để không ghi đè các counter được cập nhật bằng UPDATE nguyên tử
+@DynamicUpdate
 @Getter
 @Setter
 @NoArgsConstructor
@@ -19,10 +27,12 @@ public class Post extends BaseEntity {
     private int commentsCount;
     private int sharesCount;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "user_id")
     private User user;
 
+    // Media của cả trang feed được load theo lô bằng một query IN thay vì mỗi bài một query
+    @BatchSize(size = 100)
     @OneToMany(mappedBy = "post", cascade = CascadeType.ALL, orphanRemoval = true)
     private Set<Media> media = new HashSet<>();
 
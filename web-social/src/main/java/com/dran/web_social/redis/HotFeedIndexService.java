@@ -0,0 +1,158 @@
+package com.dran.web_social.redis;
+
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.redis.core.DefaultTypedTuple;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ZSetOperations.TypedTuple;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import com.dran.web_social.dto.projection.PostHotEntry;
+import com.dran.web_social.events.PostChangedEvent;
+import com.dran.web_social.events.PostCreatedEvent;
+import com.dran.web_social.events.PostDeletedEvent;
+import com.dran.web_social.redis.TimelineIndexService.TimelinePage;
+import com.dran.web_social.repositories.PostRepository;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Bảng xếp hạng bài viết "hot" trên Redis (ZSET, score càng lớn càng hot).
+ * Score = log10(max(1, likes + 2 * comments)) + tuổi bài viết / decaySeconds,
+ * tính từ một mốc cố định nên bài mới tự nhiên vượt bài cũ mà không cần sửa
+ * score của bài cũ. Score được cập nhật khi like/comment thay đổi; định kỳ
+ * index được dựng lại từ database cho các bài trong cửa sổ thời gian gần đây
+ * để loại bài đã quá cũ và sửa các lần cập nhật bị lỡ.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class HotFeedIndexService {
+    private static final String HOT_KEY = "feed:hot";
+    private static final String HOT_BUILD_KEY = "feed:hot:build";
+    private static final String READY_KEY = "feed:hot:ready";
+    private static final int REBUILD_CHUNK_SIZE = 1000;
+    // 2025-01-01T00:00:00Z, mốc để score không quá lớn
+    private static final long EPOCH_SECONDS = 1735689600L;
+
+    private final StringRedisTemplate redisTemplate;
+    private final PostRepository postRepository;
+
+    @Value("${app.feed.hot.window-hours:72}")
+    private long windowHours;
+
+    @Value("${app.feed.hot.decay-seconds:45000}")
+    private double decaySeconds;
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onPostCreated(PostCreatedEvent event) {
+        update(event.getPostId(), 0, 0, event.getCreateAt());
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onPostChanged(PostChangedEvent event) {
+        postRepository.findHotEntryById(event.getPostId())
+                .ifPresent(entry -> update(entry.getId(), entry.getLikesCount(), entry.getCommentsCount(),
+                        entry.getCreateAt()));
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onPostDeleted(PostDeletedEvent event) {
+        try {
+            redisTemplate.opsForZSet().remove(HOT_KEY, event.getPostId().toString());
+        } catch (DataAccessException e) {
+            log.warn("Không thể xóa post {} khỏi feed hot", event.getPostId(), e);
+        }
+    }
+
+    public Optional<TimelinePage> findPage(long offset, int size) {
+        try {
+            if (!Boolean.TRUE.equals(redisTemplate.hasKey(READY_KEY))) {
+                return Optional.empty();
+            }
+            Set<String> members = redisTemplate.opsForZSet().reverseRange(HOT_KEY, offset, offset + size - 1);
+            Long total = redisTemplate.opsForZSet().zCard(HOT_KEY);
+            if (members == null || total == null) {
+                return Optional.empty();
+            }
+            List<Long> postIds = members.stream().map(Long::valueOf).toList();
+            return Optional.of(new TimelinePage(postIds, total));
+        } catch (DataAccessException e) {
+            log.warn("Không đọc được feed hot", e);
+            return Optional.empty();
+        }
+    }
+
+    // Dựng index vào key tạm rồi RENAME để người đọc không thấy index dựng dở
+    @Scheduled(fixedDelayString = "${app.feed.hot.refresh-interval-ms:600000}",
+            initialDelayString = "${app.feed.hot.initial-delay-ms:30000}")
+    public synchronized long rebuild() {
+        Date since = windowStart();
+        long indexed = 0;
+        try {
+            redisTemplate.delete(HOT_BUILD_KEY);
+            Long afterId = 0L;
+            while (true) {
+                List<PostHotEntry> chunk = postRepository.findHotEntriesSince(since, afterId,
+                        PageRequest.of(0, REBUILD_CHUNK_SIZE));
+                if (chunk.isEmpty()) {
+                    break;
+                }
+                Set<TypedTuple<String>> tuples = new HashSet<>();
+                for (PostHotEntry entry : chunk) {
+                    tuples.add(new DefaultTypedTuple<>(entry.getId().toString(),
+                            score(entry.getLikesCount(), entry.getCommentsCount(), entry.getCreateAt())));
+                }
+                redisTemplate.opsForZSet().add(HOT_BUILD_KEY, tuples);
+                indexed += chunk.size();
+                afterId = chunk.get(chunk.size() - 1).getId();
+            }
+
+            if (indexed > 0) {
+                redisTemplate.rename(HOT_BUILD_KEY, HOT_KEY);
+            } else {
+                redisTemplate.delete(HOT_KEY);
+            }
+            redisTemplate.opsForValue().set(READY_KEY, "1");
+            log.info("Rebuilt hot feed index with {} posts", indexed);
+        } catch (DataAccessException e) {
+            log.warn("Không thể dựng lại feed hot", e);
+        }
+        return indexed;
+    }
+
+    private double score(int likesCount, int commentsCount, Date createAt) {
+        double engagement = Math.log10(Math.max(1, likesCount + 2.0 * commentsCount));
+        double ageSeconds = createAt.getTime() / 1000.0 - EPOCH_SECONDS;
+        return engagement + ageSeconds / decaySeconds;
+    }
+
+    private void update(Long postId, int likesCount, int commentsCount, Date createAt) {
+        try {
+            // Bài đã ra khỏi cửa sổ thời gian thì không xếp hạng nữa
+            if (createAt == null || createAt.before(windowStart())) {
+                redisTemplate.opsForZSet().remove(HOT_KEY, postId.toString());
+                return;
+            }
+            redisTemplate.opsForZSet().add(HOT_KEY, postId.toString(), score(likesCount, commentsCount, createAt));
+        } catch (DataAccessException e) {
+            log.warn("Không thể cập nhật score feed hot cho post {}", postId, e);
+        }
+    }
+
+    private Date windowStart() {
+        return new Date(System.currentTimeMillis() - TimeUnit.HOURS.toMillis(windowHours));
+    }
+}
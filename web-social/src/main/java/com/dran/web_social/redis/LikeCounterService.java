@@ -0,0 +1,264 @@
+package com.dran.web_social.redis;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntSupplier;
+import java.util.stream.LongStream;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.dran.web_social.custom.exception.ServiceUnavailableException;
+import com.dran.web_social.events.LikeCountChangedEvent;
+import com.dran.web_social.events.LikeCountChangedEvent.Target;
+import com.dran.web_social.events.PostChangedEvent;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Counter like ghi sau (write-behind): mỗi lượt like/unlike chỉ HINCRBY vào
+ * hash delta trên Redis, định kỳ các delta được RENAME sang key flushing và
+ * cộng vào likes_count bằng một batch UPDATE, nên bài viết nhiều like không
+ * còn bị tranh chấp lock trên một dòng. Đọc số like thì cộng thêm delta chưa
+ * flush (cả ở key flushing). Redis lỗi thì cập nhật thẳng database.
+ * Mỗi key flushing mang một generation id; id này được ghi vào
+ * counter_flush_log cùng transaction với batch UPDATE nên cộng delta và xác
+ * nhận đã cộng là nguyên tử, flush lại sau lỗi không cộng hai lần.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class LikeCounterService {
+    private static final String POST_KEY = "counter:likes:post";
+    private static final String COMMENT_KEY = "counter:likes:comment";
+    // Đổi key đang ghi sang key flushing kèm generation id mới; key flushing còn sót
+    // từ lần lỗi trước thì giữ nguyên cùng generation cũ để lần này chỉ xác nhận lại
+    private static final RedisScript<String> ROTATE = new DefaultRedisScript<>(
+            "if redis.call('EXISTS', KEYS[2]) == 0 then "
+                    + "if redis.call('EXISTS', KEYS[1]) == 0 then return false end "
+                    + "redis.call('RENAME', KEYS[1], KEYS[2]) redis.call('SET', KEYS[3], ARGV[1]) end "
+                    + "local gen = redis.call('GET', KEYS[3]) "
+                    + "if not gen then redis.call('SET', KEYS[3], ARGV[1]) gen = ARGV[1] end "
+                    + "return gen",
+            String.class);
+    // Chỉ xóa lock nếu vẫn là của mình (lock có thể đã hết hạn và bị instance khác lấy)
+    private static final RedisScript<Long> RELEASE_LOCK = new DefaultRedisScript<>(
+            "if redis.call('GET', KEYS[1]) == ARGV[1] then return redis.call('DEL', KEYS[1]) end return 0",
+            Long.class);
+    private static final long LOCK_RETRY_MILLIS = 50;
+    private static final String INSERT_FLUSH_LOG =
+            "INSERT IGNORE INTO counter_flush_log (generation, create_at, update_at) VALUES (?, NOW(), NOW())";
+
+    private final StringRedisTemplate redisTemplate;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+
+    // Lock tránh hai instance cùng flush một key flushing
+    @Value("${app.counters.likes.flush-lock-seconds:30}")
+    private long flushLockSeconds;
+
+    @Value("${app.counters.likes.flush-log-retention-hours:24}")
+    private long flushLogRetentionHours;
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onLikeCountChanged(LikeCountChangedEvent event) {
+        try {
+            redisTemplate.opsForHash().increment(pendingKey(event.getTarget()), event.getTargetId().toString(),
+                    event.getDelta());
+        } catch (DataAccessException e) {
+            log.warn("Không ghi được delta like vào Redis, cập nhật thẳng database", e);
+            jdbcTemplate.update(updateSql(event.getTarget()), event.getDelta(), event.getTargetId());
+            if (event.getTarget() == Target.POST) {
+                eventPublisher.publishEvent(new PostChangedEvent(event.getTargetId()));
+            }
+        }
+    }
+
+    public long pendingDelta(Target target, Long id) {
+        return pendingDeltas(target, List.of(id)).getOrDefault(id, 0L);
+    }
+
+    // Delta chưa flush của nhiều bài viết/comment, chỉ chứa id có delta khác 0
+    public Map<Long, Long> pendingDeltas(Target target, Collection<Long> ids) {
+        try {
+            return readDeltas(target, ids);
+        } catch (DataAccessException e) {
+            log.warn("Không đọc được delta like trên Redis", e);
+            return new HashMap<>();
+        }
+    }
+
+    /**
+     * Tính lại counter của một khoảng id bằng recount (đếm từ bảng like) rồi trừ
+     * đi delta chưa flush, vì các delta đó sẽ được cộng vào sau. Giữ lock flush
+     * trong lúc đó để delta không chuyển từ Redis sang database giữa chừng.
+     * Còn sót khoảng trễ giữa commit lượt like và HINCRBY (vài ms), lần
+     * reconcile sau sẽ sửa.
+     */
+    public int reconcile(Target target, long fromId, long toId, IntSupplier recount) {
+        String lockKey = pendingKey(target) + ":lock";
+        String token = acquireLock(lockKey);
+        try {
+            Map<Long, Long> pending = readDeltas(target, LongStream.rangeClosed(fromId, toId).boxed().toList());
+            return transactionTemplate.execute(status -> {
+                int updated = recount.getAsInt();
+                List<Object[]> batch = new ArrayList<>();
+                pending.forEach((id, delta) -> batch.add(new Object[] { -delta, id }));
+                batch.sort(Comparator.comparing(args -> (Long) args[1]));
+                jdbcTemplate.batchUpdate(updateSql(target), batch);
+                return updated;
+            });
+        } finally {
+            releaseLock(lockKey, token);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.counters.likes.flush-interval-ms:1000}")
+    public void flush() {
+        for (Target target : Target.values()) {
+            flush(target);
+        }
+    }
+
+    private int flush(Target target) {
+        String key = pendingKey(target);
+        String flushingKey = flushingKey(key);
+        String generationKey = flushingKey + ":gen";
+        String lockKey = key + ":lock";
+        try {
+            String token = UUID.randomUUID().toString();
+            if (!Boolean.TRUE.equals(redisTemplate.opsForValue().setIfAbsent(lockKey, token,
+                    Duration.ofSeconds(flushLockSeconds)))) {
+                return 0;
+            }
+            try {
+                String generation = redisTemplate.execute(ROTATE, List.of(key, flushingKey, generationKey),
+                        UUID.randomUUID().toString());
+                if (generation == null) {
+                    return 0;
+                }
+
+                List<Object[]> batch = new ArrayList<>();
+                redisTemplate.opsForHash().entries(flushingKey).forEach((field, value) -> {
+                    long delta = Long.parseLong(value.toString());
+                    if (delta != 0) {
+                        batch.add(new Object[] { delta, Long.valueOf(field.toString()) });
+                    }
+                });
+                // Cập nhật theo thứ tự id để các lần flush không khóa dòng theo thứ tự ngược nhau
+                batch.sort(Comparator.comparing(args -> (Long) args[1]));
+                boolean applied = Boolean.TRUE.equals(transactionTemplate.execute(status -> {
+                    // Generation đã có nghĩa là lần trước đã cộng xong nhưng chưa kịp xóa key flushing
+                    if (jdbcTemplate.update(INSERT_FLUSH_LOG, generation) == 0) {
+                        return false;
+                    }
+                    jdbcTemplate.batchUpdate(updateSql(target), batch);
+                    return true;
+                }));
+                redisTemplate.delete(List.of(flushingKey, generationKey));
+
+                if (!applied) {
+                    log.info("Generation {} của counter like {} đã được flush trước đó, bỏ qua", generation, target);
+                    return 0;
+                }
+                if (target == Target.POST) {
+                    batch.forEach(args -> eventPublisher.publishEvent(new PostChangedEvent((Long) args[1])));
+                }
+                return batch.size();
+            } finally {
+                releaseLock(lockKey, token);
+            }
+        } catch (DataAccessException e) {
+            log.warn("Flush counter like {} thất bại, sẽ thử lại ở lần sau", target, e);
+            return 0;
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.counters.likes.flush-log-cleanup-interval-ms:3600000}")
+    public void purgeFlushLog() {
+        Timestamp before = Timestamp.from(Instant.now().minus(Duration.ofHours(flushLogRetentionHours)));
+        int removed = jdbcTemplate.update("DELETE FROM counter_flush_log WHERE create_at < ?", before);
+        if (removed > 0) {
+            log.debug("Đã xóa {} bản ghi counter_flush_log cũ", removed);
+        }
+    }
+
+    private Map<Long, Long> readDeltas(Target target, Collection<Long> ids) {
+        Map<Long, Long> deltas = new HashMap<>();
+        if (ids.isEmpty()) {
+            return deltas;
+        }
+        String key = pendingKey(target);
+        List<Object> fields = ids.stream().map(id -> (Object) id.toString()).toList();
+        addDeltas(deltas, fields, redisTemplate.opsForHash().multiGet(key, fields));
+        addDeltas(deltas, fields, redisTemplate.opsForHash().multiGet(flushingKey(key), fields));
+        deltas.values().removeIf(delta -> delta == 0);
+        return deltas;
+    }
+
+    // Chờ lock flush (flush định kỳ chỉ giữ lock trong thời gian ngắn)
+    private String acquireLock(String lockKey) {
+        String token = UUID.randomUUID().toString();
+        long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(flushLockSeconds);
+        while (!Boolean.TRUE.equals(redisTemplate.opsForValue().setIfAbsent(lockKey, token,
+                Duration.ofSeconds(flushLockSeconds)))) {
+            if (System.currentTimeMillis() > deadline) {
+                throw new ServiceUnavailableException("Counter like đang được flush, vui lòng thử lại sau");
+            }
+            try {
+                Thread.sleep(LOCK_RETRY_MILLIS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new ServiceUnavailableException("Bị ngắt khi chờ lock counter like");
+            }
+        }
+        return token;
+    }
+
+    private void releaseLock(String lockKey, String token) {
+        redisTemplate.execute(RELEASE_LOCK, List.of(lockKey), token);
+    }
+
+    private void addDeltas(Map<Long, Long> deltas, List<Object> fields, List<Object> values) {
+        for (int i = 0; i < fields.size(); i++) {
+            Object value = values.get(i);
+            if (value != null) {
+                deltas.merge(Long.valueOf(fields.get(i).toString()), Long.parseLong(value.toString()), Long::sum);
+            }
+        }
+    }
+
+    private String pendingKey(Target target) {
+        return target == Target.POST ? POST_KEY : COMMENT_KEY;
+    }
+
+    private String flushingKey(String key) {
+        return key + ":flushing";
+    }
+
+    private String updateSql(Target target) {
+        String table = target == Target.POST ? "posts" : "comments_post";
+        return "UPDATE " + table + " SET likes_count = GREATEST(likes_count + ?, 0) WHERE id = ?";
+    }
+}
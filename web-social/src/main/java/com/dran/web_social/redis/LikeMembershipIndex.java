@@ -0,0 +1,162 @@
+package com.dran.web_social.redis;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import com.dran.web_social.events.LikeCountChangedEvent;
+import com.dran.web_social.events.LikeCountChangedEvent.Target;
+import com.dran.web_social.repositories.LikeCommentRepository;
+import com.dran.web_social.repositories.LikePostRepository;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Index "user đã like những gì" trên Redis: mỗi user một SET id bài viết và
+ * một SET id comment đã like. Kiểm tra N id chỉ cần một lệnh SMISMEMBER. Set
+ * được nạp từ database ở lần đọc đầu tiên (member "0" đánh dấu đã nạp, kể cả
+ * khi user chưa like gì), hết hạn sau ttl-seconds, và được cập nhật sau mỗi
+ * lần like/unlike nếu đã có trên Redis.
+ * Mỗi lần like/unlike tăng version của index. Lần nạp ghi vào key tạm rồi chỉ
+ * RENAME sang key thật nếu version không đổi kể từ trước khi đọc database,
+ * nên thay đổi xảy ra giữa lúc đọc và lúc ghi không bị set cũ ghi đè mất.
+ * User like quá max-members được đánh dấu oversized và đọc thẳng database.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class LikeMembershipIndex {
+    private static final String LOADED_MARKER = "0";
+    // Luôn tăng version để lần nạp đang chạy biết mình đã cũ; chỉ sửa set đã được nạp,
+    // set chưa nạp sẽ đọc từ database ở lần sau nên không cần tạo dở. Set vượt
+    // max-members thì bỏ và đánh dấu oversized
+    private static final RedisScript<Long> UPDATE_IF_LOADED = new DefaultRedisScript<>(
+            "redis.call('INCR', KEYS[2]) redis.call('EXPIRE', KEYS[2], ARGV[3]) "
+                    + "if redis.call('EXISTS', KEYS[1]) == 0 then return 0 end "
+                    + "redis.call(ARGV[1], KEYS[1], ARGV[2]) "
+                    + "if redis.call('SCARD', KEYS[1]) > tonumber(ARGV[4]) + 1 then "
+                    + "redis.call('DEL', KEYS[1]) redis.call('SET', KEYS[3], '1', 'EX', ARGV[3]) end "
+                    + "return 1",
+            Long.class);
+    // Đưa set vừa nạp ở key tạm vào chỗ nếu version chưa bị lượt like/unlike nào tăng
+    private static final RedisScript<Long> COMMIT_LOAD = new DefaultRedisScript<>(
+            "if (redis.call('GET', KEYS[3]) or '0') ~= ARGV[1] then redis.call('DEL', KEYS[1]) return 0 end "
+                    + "redis.call('RENAME', KEYS[1], KEYS[2]) redis.call('EXPIRE', KEYS[2], ARGV[2]) return 1",
+            Long.class);
+    private static final long TEMP_KEY_TTL_SECONDS = 60;
+
+    private final StringRedisTemplate redisTemplate;
+    private final LikePostRepository likePostRepository;
+    private final LikeCommentRepository likeCommentRepository;
+
+    @Value("${app.likes.membership.ttl-seconds:3600}")
+    private long ttlSeconds;
+
+    // User like quá nhiều thì không giữ cả set trên Redis, đọc thẳng database
+    @Value("${app.likes.membership.max-members:10000}")
+    private int maxMembers;
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onLikeCountChanged(LikeCountChangedEvent event) {
+        String key = key(event.getTarget(), event.getUserId());
+        try {
+            redisTemplate.execute(UPDATE_IF_LOADED, List.of(key, versionKey(key), oversizedKey(key)),
+                    event.getDelta() > 0 ? "SADD" : "SREM", event.getTargetId().toString(),
+                    Long.toString(ttlSeconds), Integer.toString(maxMembers));
+        } catch (DataAccessException e) {
+            log.warn("Không cập nhật được index like {}, xóa để nạp lại", key, e);
+            try {
+                redisTemplate.delete(key);
+            } catch (DataAccessException ignored) {
+                // Redis không dùng được thì lần đọc sau cũng sẽ đọc database
+            }
+        }
+    }
+
+    public boolean isLiked(Target target, Long userId, Long targetId) {
+        return likedIds(target, userId, List.of(targetId)).contains(targetId);
+    }
+
+    // Các id trong ids mà user đã like
+    public Set<Long> likedIds(Target target, Long userId, Collection<Long> ids) {
+        if (userId == null || ids == null || ids.isEmpty()) {
+            return Set.of();
+        }
+        String key = key(target, userId);
+        try {
+            Object[] members = Stream.concat(Stream.of(LOADED_MARKER), ids.stream().map(String::valueOf)).toArray();
+            Map<Object, Boolean> result = redisTemplate.opsForSet().isMember(key, members);
+            if (result != null && Boolean.TRUE.equals(result.get(LOADED_MARKER))) {
+                return ids.stream()
+                        .filter(id -> Boolean.TRUE.equals(result.get(id.toString())))
+                        .collect(Collectors.toSet());
+            }
+            if (Boolean.TRUE.equals(redisTemplate.hasKey(oversizedKey(key)))) {
+                return queryDatabase(target, userId, ids);
+            }
+            Set<Long> liked = load(target, userId, key);
+            return ids.stream().filter(liked::contains).collect(Collectors.toSet());
+        } catch (DataAccessException e) {
+            log.warn("Không đọc được index like {}, đọc từ database", key, e);
+            return queryDatabase(target, userId, ids);
+        }
+    }
+
+    private Set<Long> load(Target target, Long userId, String key) {
+        // Version phải được đọc trước database: thay đổi commit sau thời điểm này sẽ làm lần nạp bị bỏ
+        String version = Objects.requireNonNullElse(redisTemplate.opsForValue().get(versionKey(key)), "0");
+        List<Long> likedIds = target == Target.POST
+                ? likePostRepository.findLikedPostIdsByUserId(userId)
+                : likeCommentRepository.findLikedCommentIdsByUserId(userId);
+        if (likedIds.size() > maxMembers) {
+            redisTemplate.opsForValue().set(oversizedKey(key), "1", ttlSeconds, TimeUnit.SECONDS);
+            return Set.copyOf(likedIds);
+        }
+        String tempKey = key + ":load:" + UUID.randomUUID();
+        String[] members = Stream.concat(Stream.of(LOADED_MARKER), likedIds.stream().map(String::valueOf))
+                .toArray(String[]::new);
+        redisTemplate.opsForSet().add(tempKey, members);
+        redisTemplate.expire(tempKey, TEMP_KEY_TTL_SECONDS, TimeUnit.SECONDS);
+        Long committed = redisTemplate.execute(COMMIT_LOAD, List.of(tempKey, key, versionKey(key)), version,
+                Long.toString(ttlSeconds));
+        if (!Long.valueOf(1).equals(committed)) {
+            log.debug("Index like {} đã thay đổi trong lúc nạp, bỏ lần nạp này", key);
+        }
+        return Set.copyOf(likedIds);
+    }
+
+    private Set<Long> queryDatabase(Target target, Long userId, Collection<Long> ids) {
+        List<Long> likedIds = target == Target.POST
+                ? likePostRepository.findLikedPostIdsByUserIdAndPostIdIn(userId, ids)
+                : likeCommentRepository.findLikedCommentIdsByUserIdAndCommentIdIn(userId, ids);
+        return Set.copyOf(likedIds);
+    }
+
+    private String key(Target target, Long userId) {
+        return "likes:user:" + userId + (target == Target.POST ? ":posts" : ":comments");
+    }
+
+    private String versionKey(String key) {
+        return key + ":ver";
+    }
+
+    private String oversizedKey(String key) {
+        return key + ":oversized";
+    }
+}
@@ -0,0 +1,232 @@
+package com.dran.web_social.redis;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.redis.core.Cursor;
+import org.springframework.data.redis.core.DefaultTypedTuple;
+import org.springframework.data.redis.core.ScanOptions;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ZSetOperations.TypedTuple;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import com.dran.web_social.dto.projection.PostTimelineEntry;
+import com.dran.web_social.events.PostCreatedEvent;
+import com.dran.web_social.events.PostDeletedEvent;
+import com.dran.web_social.repositories.PostRepository;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Timeline index trên Redis: mỗi feed là một ZSET chứa id bài viết, score là
+ * thời điểm tạo. Feed toàn cục được giới hạn kích thước, feed theo tác giả thì
+ * không. Khi index chưa sẵn sàng (chưa rebuild hoặc Redis lỗi) hoặc trang đọc
+ * được bị thiếu thì trả về Optional.empty() để nơi gọi đọc thẳng từ database.
+ * Index được tự dựng lại khi khởi động nếu chưa có.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class TimelineIndexService {
+    private static final String GLOBAL_KEY = "timeline:global";
+    private static final String GLOBAL_COUNT_KEY = "timeline:global:count";
+    private static final String USER_KEY_PREFIX = "timeline:user:";
+    private static final String READY_KEY = "timeline:ready";
+    private static final String REBUILD_LOCK_KEY = "timeline:rebuild:lock";
+    private static final int REBUILD_CHUNK_SIZE = 1000;
+
+    private final StringRedisTemplate redisTemplate;
+    private final PostRepository postRepository;
+
+    @Value("${app.timeline.global-max-size:10000}")
+    private long globalMaxSize;
+
+    @Value("${app.timeline.rebuild-lock-seconds:600}")
+    private long rebuildLockSeconds;
+
+    @Getter
+    @AllArgsConstructor
+    public static class TimelinePage {
+        private final List<Long> postIds;
+        private final long total;
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void onPostCreated(PostCreatedEvent event) {
+        try {
+            String member = event.getPostId().toString();
+            double score = event.getCreateAt().getTime();
+
+            Boolean added = redisTemplate.opsForZSet().add(GLOBAL_KEY, member, score);
+            redisTemplate.opsForZSet().add(userKey(event.getUserId()), member, score);
+            if (Boolean.TRUE.equals(added)) {
+                redisTemplate.opsForValue().increment(GLOBAL_COUNT_KEY);
+            }
+            redisTemplate.opsForZSet().removeRange(GLOBAL_KEY, 0, -(globalMaxSize + 1));
+        } catch (DataAccessException e) {
+            log.warn("Không thể thêm post {} vào timeline, chuyển sang đọc từ database", event.getPostId(), e);
+            markStale();
+        }
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void onPostDeleted(PostDeletedEvent event) {
+        try {
+            String member = event.getPostId().toString();
+            redisTemplate.opsForZSet().remove(GLOBAL_KEY, member);
+            redisTemplate.opsForZSet().remove(userKey(event.getUserId()), member);
+            redisTemplate.opsForValue().decrement(GLOBAL_COUNT_KEY);
+        } catch (DataAccessException e) {
+            log.warn("Không thể xóa post {} khỏi timeline, chuyển sang đọc từ database", event.getPostId(), e);
+            markStale();
+        }
+    }
+
+    public Optional<TimelinePage> findGlobalPage(long offset, int size) {
+        // Feed toàn cục chỉ giữ globalMaxSize bài mới nhất, trang sâu hơn đọc từ database
+        if (offset + size > globalMaxSize) {
+            return Optional.empty();
+        }
+        return findPage(GLOBAL_KEY, offset, size, true);
+    }
+
+    public Optional<TimelinePage> findUserPage(Long userId, long offset, int size) {
+        return findPage(userKey(userId), offset, size, false);
+    }
+
+    private Optional<TimelinePage> findPage(String key, long offset, int size, boolean global) {
+        try {
+            if (!Boolean.TRUE.equals(redisTemplate.hasKey(READY_KEY))) {
+                return Optional.empty();
+            }
+            Set<String> members = redisTemplate.opsForZSet().reverseRange(key, offset, offset + size - 1);
+            if (members == null) {
+                return Optional.empty();
+            }
+            List<Long> postIds = members.stream().map(Long::valueOf).toList();
+            long total = global ? globalCount() : zCard(key);
+            // Feed toàn cục bị cắt ở globalMaxSize và xóa bài không bù lại, nên trang thiếu trong khi
+            // database còn bài thì đọc từ database thay vì trả về trang ngắn
+            if (global && postIds.size() < size && offset + postIds.size() < total) {
+                return Optional.empty();
+            }
+            return Optional.of(new TimelinePage(postIds, total));
+        } catch (DataAccessException e) {
+            log.warn("Không đọc được timeline {}, chuyển sang đọc từ database", key, e);
+            return Optional.empty();
+        }
+    }
+
+    // Khi khởi động (và sau khi index bị đánh dấu stale) tự dựng lại nếu chưa có; lock để chỉ một instance dựng
+    @Scheduled(fixedDelayString = "${app.timeline.ready-check-interval-ms:60000}",
+            initialDelayString = "${app.timeline.initial-delay-ms:5000}")
+    public void rebuildIfMissing() {
+        try {
+            if (Boolean.TRUE.equals(redisTemplate.hasKey(READY_KEY))) {
+                return;
+            }
+            if (!Boolean.TRUE.equals(redisTemplate.opsForValue().setIfAbsent(REBUILD_LOCK_KEY, "1",
+                    Duration.ofSeconds(rebuildLockSeconds)))) {
+                return;
+            }
+            try {
+                rebuild();
+            } finally {
+                redisTemplate.delete(REBUILD_LOCK_KEY);
+            }
+        } catch (DataAccessException e) {
+            log.warn("Không thể dựng lại timeline, tiếp tục đọc từ database", e);
+        }
+    }
+
+    // Dựng lại toàn bộ index từ database; trong lúc dựng các request đọc thẳng từ database
+    public synchronized long rebuild() {
+        redisTemplate.delete(READY_KEY);
+        redisTemplate.delete(List.of(GLOBAL_KEY, GLOBAL_COUNT_KEY));
+        deleteUserTimelines();
+
+        long indexed = 0;
+        Long afterId = 0L;
+        while (true) {
+            List<PostTimelineEntry> chunk = postRepository.findTimelineEntries(afterId,
+                    PageRequest.of(0, REBUILD_CHUNK_SIZE));
+            if (chunk.isEmpty()) {
+                break;
+            }
+
+            Set<TypedTuple<String>> global = new HashSet<>();
+            Map<Long, Set<TypedTuple<String>>> byUser = new HashMap<>();
+            for (PostTimelineEntry entry : chunk) {
+                TypedTuple<String> tuple = new DefaultTypedTuple<>(entry.getId().toString(),
+                        (double) entry.getCreateAt().getTime());
+                global.add(tuple);
+                byUser.computeIfAbsent(entry.getUserId(), k -> new HashSet<>()).add(tuple);
+            }
+            redisTemplate.opsForZSet().add(GLOBAL_KEY, global);
+            byUser.forEach((userId, tuples) -> redisTemplate.opsForZSet().add(userKey(userId), tuples));
+            redisTemplate.opsForZSet().removeRange(GLOBAL_KEY, 0, -(globalMaxSize + 1));
+
+            indexed += chunk.size();
+            afterId = chunk.get(chunk.size() - 1).getId();
+        }
+
+        redisTemplate.opsForValue().set(GLOBAL_COUNT_KEY, Long.toString(indexed));
+        redisTemplate.opsForValue().set(READY_KEY, "1");
+        log.info("Rebuilt timeline index with {} posts", indexed);
+        return indexed;
+    }
+
+    private void deleteUserTimelines() {
+        ScanOptions options = ScanOptions.scanOptions().match(USER_KEY_PREFIX + "*").count(1000).build();
+        try (Cursor<String> cursor = redisTemplate.scan(options)) {
+            List<String> batch = new ArrayList<>();
+            while (cursor.hasNext()) {
+                batch.add(cursor.next());
+                if (batch.size() >= 500) {
+                    redisTemplate.delete(batch);
+                    batch = new ArrayList<>();
+                }
+            }
+            if (!batch.isEmpty()) {
+                redisTemplate.delete(batch);
+            }
+        }
+    }
+
+    private void markStale() {
+        try {
+            redisTemplate.delete(READY_KEY);
+        } catch (DataAccessException e) {
+            log.warn("Không thể đánh dấu timeline cần rebuild", e);
+        }
+    }
+
+    private long globalCount() {
+        String count = redisTemplate.opsForValue().get(GLOBAL_COUNT_KEY);
+        return count != null ? Long.parseLong(count) : zCard(GLOBAL_KEY);
+    }
+
+    private long zCard(String key) {
+        Long size = redisTemplate.opsForZSet().zCard(key);
+        return size != null ? size : 0;
+    }
+
+    private String userKey(Long userId) {
+        return USER_KEY_PREFIX + userId;
+    }
+}
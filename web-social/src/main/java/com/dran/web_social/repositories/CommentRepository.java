@@ -1,13 +1,21 @@
 package com.dran.web_social.repositories;
 
+import com.dran.web_social.dto.projection.LikesCountEntry;
+import com.dran.web_social.dto.projection.ReplyRef;
 import com.dran.web_social.models.CommentPost;
+import com.dran.web_social.utils.CommentPathUtil;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
+import java.util.Date;
 import java.util.List;
 
 @Repository
@@ -35,4 +43,100 @@ public interface CommentRepository extends JpaRepository<CommentPost, Long> {
 
     @Query("SELECT c FROM CommentPost c WHERE c.post.id = :postId AND c.deleted = false")
     List<CommentPost> findByPostId(Long postId);
+
+    // Tối đa :limit reply sớm nhất của mỗi comment cha, tránh một thread lớn kéo cả nghìn dòng.
+    // Sắp theo thứ hạng trước để khi cắt theo ngân sách, các comment cha được chia đều
+    @Query(value = "SELECT t.id AS id, t.parent_id AS parentId FROM (SELECT c.id, c.parent_id, ROW_NUMBER() OVER "
+            + "(PARTITION BY c.parent_id ORDER BY c.create_at ASC, c.id ASC) AS rn "
+            + "FROM comments_post c WHERE c.parent_id IN (:parentIds) AND c.deleted = false) t "
+            + "WHERE t.rn <= :limit ORDER BY t.rn, t.parent_id", nativeQuery = true)
+    List<ReplyRef> findReplyRefsByParentIds(@Param("parentIds") Collection<Long> parentIds, @Param("limit") int limit);
+
+    @Query("SELECT c FROM CommentPost c JOIN FETCH c.user WHERE c.id IN :ids")
+    List<CommentPost> findAllWithUserByIdIn(@Param("ids") Collection<Long> ids);
+
+    // Keyset pagination cho reply của một comment theo (createAt, id) tăng dần
+    @Query("SELECT c FROM CommentPost c JOIN FETCH c.user WHERE c.parent.id = :parentId AND c.deleted = false "
+            + "ORDER BY c.createAt ASC, c.id ASC")
+    Slice<CommentPost> findReplySlice(@Param("parentId") Long parentId, Pageable pageable);
+
+    @Query("SELECT c FROM CommentPost c JOIN FETCH c.user WHERE c.parent.id = :parentId AND c.deleted = false "
+            + "AND (c.createAt > :createAt OR (c.createAt = :createAt AND c.id > :id)) "
+            + "ORDER BY c.createAt ASC, c.id ASC")
+    Slice<CommentPost> findReplySliceAfter(@Param("parentId") Long parentId, @Param("createAt") Date createAt,
+            @Param("id") Long id, Pageable pageable);
+
+    boolean existsByIdInAndDeletedTrue(Collection<Long> ids);
+
+    // Cây con theo materialized path (gồm cả chính comment), dùng index idx_comments_path; sắp theo path
+    // nên mỗi comment đứng sau tổ tiên của nó
+    @Query("SELECT c FROM CommentPost c JOIN FETCH c.user WHERE c.path LIKE CONCAT(:path, '%') "
+            + "AND c.deleted = false ORDER BY c.path ASC")
+    List<CommentPost> findSubtreeByPath(@Param("path") String path, Pageable pageable);
+
+    @Query("SELECT COUNT(c) FROM CommentPost c WHERE c.path LIKE CONCAT(:path, '%') AND c.deleted = false")
+    int countActiveSubtreeByPath(@Param("path") String path);
+
+    @Query("UPDATE CommentPost c SET c.deleted = true WHERE c.path LIKE CONCAT(:path, '%') AND c.deleted = false")
+    @Modifying
+    int markSubtreeDeletedByPath(@Param("path") String path);
+
+    // Con chưa có path (backfill chưa tới hoặc path quá dài) của các comment trong cây con theo path
+    @Query("SELECT c.id FROM CommentPost c JOIN c.parent p WHERE c.path IS NULL AND c.deleted = false "
+            + "AND p.path LIKE CONCAT(:path, '%')")
+    List<Long> findActiveReplyIdsWithoutPathUnder(@Param("path") String path);
+
+    @Query("UPDATE CommentPost c SET c.deleted = true WHERE c.id IN :ids AND c.deleted = false")
+    @Modifying
+    int markDeletedByIdIn(@Param("ids") Collection<Long> ids);
+
+    @Query("SELECT c.id FROM CommentPost c WHERE c.parent.id IN :parentIds AND c.deleted = false")
+    List<Long> findActiveReplyIdsByParentIds(@Param("parentIds") Collection<Long> parentIds);
+
+    // Backfill path cho dữ liệu cũ theo từng khoảng id: comment gốc trước, sau đó mỗi lượt điền thêm một tầng
+    @Query(value = "UPDATE comments_post SET path = CONCAT('/', id, '/') "
+            + "WHERE parent_id IS NULL AND path IS NULL AND id BETWEEN :fromId AND :toId", nativeQuery = true)
+    @Modifying
+    @Transactional
+    int backfillRootPaths(@Param("fromId") long fromId, @Param("toId") long toId);
+
+    // Như createComment, comment có cha ở tầng MAX_DEPTH (chuỗi reply rất sâu) được để null thay vì làm
+    // path dài quá cột và hỏng cả khoảng id; các thao tác trên cây con của nó đi theo parent_id.
+    // Độ sâu của path = số dấu "/" trừ 1
+    @Query(value = "UPDATE comments_post c JOIN comments_post p ON p.id = c.parent_id "
+            + "SET c.path = CONCAT(p.path, c.id, '/') "
+            + "WHERE c.path IS NULL AND p.path IS NOT NULL AND c.id BETWEEN :fromId AND :toId "
+            + "AND CHAR_LENGTH(p.path) - CHAR_LENGTH(REPLACE(p.path, '/', '')) - 1 < "
+            + CommentPathUtil.MAX_DEPTH, nativeQuery = true)
+    @Modifying
+    @Transactional
+    int backfillChildPaths(@Param("fromId") long fromId, @Param("toId") long toId);
+
+    @Query("UPDATE CommentPost c SET c.likesCount = CASE WHEN c.likesCount + :delta < 0 THEN 0 ELSE c.likesCount + :delta END WHERE c.id = :commentId")
+    @Modifying
+    int incrementLikesCount(@Param("commentId") Long commentId, @Param("delta") int delta);
+
+    @Query("UPDATE CommentPost c SET c.repliesCount = CASE WHEN c.repliesCount + :delta < 0 THEN 0 ELSE c.repliesCount + :delta END WHERE c.id = :commentId")
+    @Modifying
+    int incrementRepliesCount(@Param("commentId") Long commentId, @Param("delta") int delta);
+
+    @Query("SELECT c.id AS id, c.likesCount AS likesCount FROM CommentPost c WHERE c.id IN :ids")
+    List<LikesCountEntry> findLikesCountsByIdIn(@Param("ids") Collection<Long> ids);
+
+    @Query("SELECT c.likesCount FROM CommentPost c WHERE c.id = :commentId")
+    int findLikesCountById(@Param("commentId") Long commentId);
+
+    @Query("SELECT COALESCE(MAX(c.id), 0) FROM CommentPost c")
+    long findMaxId();
+
+    @Query(value = "UPDATE comments_post c "
+            + "LEFT JOIN (SELECT r.parent_id, COUNT(*) AS cnt FROM comments_post r "
+            + "WHERE r.deleted = false AND r.parent_id BETWEEN :fromId AND :toId GROUP BY r.parent_id) rc "
+            + "ON rc.parent_id = c.id "
+            + "SET c.replies_count = COALESCE(rc.cnt, 0), "
+            + "c.likes_count = (SELECT COUNT(*) FROM likes_comments lc WHERE lc.comment_id = c.id AND lc.is_liked = true) "
+            + "WHERE c.id BETWEEN :fromId AND :toId", nativeQuery = true)
+    @Modifying
+    @Transactional
+    int reconcileCountersByIdRange(@Param("fromId") long fromId, @Param("toId") long toId);
 }
@@ -6,6 +6,8 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
@@ -23,4 +25,12 @@ public interface LikeCommentRepository extends JpaRepository<LikeComment, Long>
     Optional<Boolean> findIsLikedByCommentIdAndUserId(@Param("commentId") Long commentId, @Param("userId") Long userId);
 
     boolean existsByCommentIdAndUserId(Long commentId, Long userId);
+
+    @Query("SELECT lc.comment.id FROM LikeComment lc WHERE lc.user.id = :userId AND lc.isLiked = true")
+    List<Long> findLikedCommentIdsByUserId(@Param("userId") Long userId);
+
+    @Query("SELECT lc.comment.id FROM LikeComment lc WHERE lc.user.id = :userId AND lc.comment.id IN :commentIds "
+            + "AND lc.isLiked = true")
+    List<Long> findLikedCommentIdsByUserIdAndCommentIdIn(@Param("userId") Long userId,
+            @Param("commentIds") Collection<Long> commentIds);
 }
\ No newline at end of file
@@ -10,6 +10,10 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import jakarta.transaction.Transactional;
+
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
@@ -25,6 +29,44 @@ public interface LikePostRepository extends JpaRepository<LikePost, Long> {
 
     boolean existsByPostIdAndUserId(Long postId, Long userId);
 
+    // Lấy danh sách post đã like của user trong một trang feed bằng một query IN
+    @Query("SELECT lp.post.id FROM LikePost lp WHERE lp.user.id = :userId AND lp.post.id IN :postIds AND lp.isLiked = true")
+    List<Long> findLikedPostIdsByUserIdAndPostIdIn(@Param("userId") Long userId,
+            @Param("postIds") Collection<Long> postIds);
+
+    @Query("SELECT lp.post.id FROM LikePost lp WHERE lp.user.id = :userId AND lp.isLiked = true")
+    List<Long> findLikedPostIdsByUserId(@Param("userId") Long userId);
+
+    @Query(value = "INSERT IGNORE INTO likes_post (post_id, user_id, is_liked, create_at, update_at) "
+            + "VALUES (:postId, :userId, true, NOW(), NOW())", nativeQuery = true)
+    @Modifying
+    @Transactional
+    int insertLikeIfAbsent(@Param("postId") Long postId, @Param("userId") Long userId);
+
+    // Dòng is_liked = false còn sót từ cách toggle cũ chặn INSERT IGNORE ở trên (trùng unique key): bật lại dòng đó
+    @Query(value = "UPDATE likes_post SET is_liked = true, update_at = NOW() "
+            + "WHERE post_id = :postId AND user_id = :userId AND is_liked = false", nativeQuery = true)
+    @Modifying
+    @Transactional
+    int reviveLike(@Param("postId") Long postId, @Param("userId") Long userId);
+
+    @Query("DELETE FROM LikePost lp WHERE lp.post.id = :postId AND lp.user.id = :userId AND lp.isLiked = true")
+    @Modifying
+    @Transactional
+    int deleteLike(@Param("postId") Long postId, @Param("userId") Long userId);
+
+    // Dọn dữ liệu từ cách toggle cũ: dòng is_liked = false và dòng trùng (post_id, user_id), giữ dòng id nhỏ nhất
+    @Query(value = "DELETE FROM likes_post WHERE is_liked = false", nativeQuery = true)
+    @Modifying
+    @Transactional
+    int deleteUnliked();
+
+    @Query(value = "DELETE lp FROM likes_post lp JOIN likes_post keep ON keep.post_id = lp.post_id "
+            + "AND keep.user_id = lp.user_id AND keep.id < lp.id", nativeQuery = true)
+    @Modifying
+    @Transactional
+    int deleteDuplicates();
+
     @Modifying
     @Query("DELETE FROM LikePost lp WHERE lp.id = :id")
     void deleteLikeById(@Param("id") Long id);
@@ -0,0 +1,56 @@
+package com.dran.web_social.repositories;
+
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.Optional;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import com.dran.web_social.models.MediaDeletionOutbox;
+import com.dran.web_social.models.MediaDeletionOutbox.OutboxStatus;
+
+import jakarta.persistence.LockModeType;
+import jakarta.transaction.Transactional;
+
+public interface MediaDeletionOutboxRepository extends JpaRepository<MediaDeletionOutbox, Long> {
+
+    @Query("SELECT o.id FROM MediaDeletionOutbox o "
+            + "WHERE o.status = com.dran.web_social.models.MediaDeletionOutbox.OutboxStatus.PENDING "
+            + "AND (o.nextAttemptAt IS NULL OR o.nextAttemptAt <= :now) ORDER BY o.id ASC")
+    List<Long> findDueIds(@Param("now") Date now, Pageable pageable);
+
+    // Giữ quyền xử lý một bản ghi tới leaseUntil, trả về 0 nếu instance khác đã nhận
+    @Query("UPDATE MediaDeletionOutbox o SET o.nextAttemptAt = :leaseUntil WHERE o.id = :id "
+            + "AND o.status = com.dran.web_social.models.MediaDeletionOutbox.OutboxStatus.PENDING "
+            + "AND (o.nextAttemptAt IS NULL OR o.nextAttemptAt <= :now)")
+    @Modifying
+    @Transactional
+    int claim(@Param("id") Long id, @Param("now") Date now, @Param("leaseUntil") Date leaseUntil);
+
+    boolean existsByPublicId(String publicId);
+
+    // Khóa bản ghi trong lúc kiểm tra tham chiếu, cùng khóa với reserveAssets phía gắn asset vào media mới
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT o FROM MediaDeletionOutbox o WHERE o.id = :id")
+    Optional<MediaDeletionOutbox> findByIdForUpdate(@Param("id") Long id);
+
+    // Khóa cả khoảng index public_id nên yêu cầu xóa mới cho các asset này phải chờ transaction hiện tại
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT o FROM MediaDeletionOutbox o WHERE o.publicId IN :publicIds")
+    List<MediaDeletionOutbox> findByPublicIdInForUpdate(@Param("publicIds") Collection<String> publicIds);
+
+    long countByStatus(OutboxStatus status);
+
+    @Query("UPDATE MediaDeletionOutbox o SET o.attempts = 0, o.nextAttemptAt = NULL, "
+            + "o.status = com.dran.web_social.models.MediaDeletionOutbox.OutboxStatus.PENDING "
+            + "WHERE o.status = com.dran.web_social.models.MediaDeletionOutbox.OutboxStatus.DEAD")
+    @Modifying
+    @Transactional
+    int requeueDead();
+}
@@ -1,9 +1,72 @@
 package com.dran.web_social.repositories;
 
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.Optional;
+
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import com.dran.web_social.dto.projection.MediaAsset;
+import com.dran.web_social.dto.projection.PostMediaRow;
 import com.dran.web_social.models.Media;
 
+import jakarta.transaction.Transactional;
+
 public interface MediaRepository extends JpaRepository<Media, Long> {
 
+    // Lấy media của cả trang feed trong một query, nơi gọi tự nhóm theo postId
+    @Query("SELECT new com.dran.web_social.dto.projection.PostMediaRow(m.post.id, m.id, m.url, m.type, m.status) "
+            + "FROM Media m WHERE m.post.id IN :postIds ORDER BY m.id ASC")
+    List<PostMediaRow> findRowsByPostIdIn(@Param("postIds") Collection<Long> postIds);
+
+    Optional<MediaAsset> findFirstByContentHashAndPublicIdIsNotNullOrderByIdAsc(String contentHash);
+
+    long countByPublicId(String publicId);
+
+    // Giữ quyền xử lý một media PENDING tới leaseUntil, trả về 0 nếu worker khác đã nhận
+    @Query("UPDATE Media m SET m.nextAttemptAt = :leaseUntil WHERE m.id = :id "
+            + "AND m.status = com.dran.web_social.models.Media.MediaStatus.PENDING "
+            + "AND (m.nextAttemptAt IS NULL OR m.nextAttemptAt <= :now)")
+    @Modifying
+    @Transactional
+    int claimPending(@Param("id") Long id, @Param("now") Date now, @Param("leaseUntil") Date leaseUntil);
+
+    // Gia hạn lease trong lúc worker vẫn đang upload media
+    @Query("UPDATE Media m SET m.nextAttemptAt = :leaseUntil WHERE m.id = :id "
+            + "AND m.status = com.dran.web_social.models.Media.MediaStatus.PENDING")
+    @Modifying
+    @Transactional
+    int renewLease(@Param("id") Long id, @Param("leaseUntil") Date leaseUntil);
+
+    @Query("SELECT m.id FROM Media m WHERE m.status = com.dran.web_social.models.Media.MediaStatus.PENDING "
+            + "AND (m.nextAttemptAt IS NULL OR m.nextAttemptAt <= :now) ORDER BY m.id ASC")
+    List<Long> findRetryablePendingIds(@Param("now") Date now, Pageable pageable);
+
+    @Query("UPDATE Media m SET m.url = :url, m.publicId = :publicId, m.contentHash = :contentHash, "
+            + "m.stagingPath = NULL, m.nextAttemptAt = NULL, "
+            + "m.status = com.dran.web_social.models.Media.MediaStatus.READY "
+            + "WHERE m.id = :id AND m.status = com.dran.web_social.models.Media.MediaStatus.PENDING")
+    @Modifying
+    @Transactional
+    int markReady(@Param("id") Long id, @Param("url") String url, @Param("publicId") String publicId,
+            @Param("contentHash") String contentHash);
+
+    @Query("UPDATE Media m SET m.attempts = :attempts, m.nextAttemptAt = :nextAttemptAt "
+            + "WHERE m.id = :id AND m.status = com.dran.web_social.models.Media.MediaStatus.PENDING")
+    @Modifying
+    @Transactional
+    int scheduleRetry(@Param("id") Long id, @Param("attempts") int attempts,
+            @Param("nextAttemptAt") Date nextAttemptAt);
+
+    @Query("UPDATE Media m SET m.attempts = :attempts, m.stagingPath = NULL, m.nextAttemptAt = NULL, "
+            + "m.status = com.dran.web_social.models.Media.MediaStatus.FAILED "
+            + "WHERE m.id = :id AND m.status = com.dran.web_social.models.Media.MediaStatus.PENDING")
+    @Modifying
+    @Transactional
+    int markFailed(@Param("id") Long id, @Param("attempts") int attempts);
 }
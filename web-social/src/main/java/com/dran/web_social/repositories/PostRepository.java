@@ -1,19 +1,83 @@
 package com.dran.web_social.repositories;
 
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.Optional;
+
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import com.dran.web_social.dto.projection.LikesCountEntry;
+import com.dran.web_social.dto.projection.PostHotEntry;
+import com.dran.web_social.dto.projection.PostSummary;
+import com.dran.web_social.dto.projection.PostTimelineEntry;
 import com.dran.web_social.models.Post;
 
 import jakarta.transaction.Transactional;
 
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
 public interface PostRepository extends JpaRepository<Post, Long> {
-    @Query("SELECT p FROM Post p WHERE p.user.id = :userId ORDER BY p.createAt DESC")
-    Page<Post> findByUserId(@Param("userId") Long userId, Pageable pageable);
+    // findById dùng cho các luồng ghi: join sẵn tác giả (user là LAZY) và media.
+    // Profile là phía mappedBy của @OneToOne nên không lazy được, join luôn để tránh thêm một query.
+    @Override
+    @EntityGraph(attributePaths = { "user", "user.profile", "media" })
+    Optional<Post> findById(Long id);
+
+    // Các query feed chỉ select cột cần cho PostResponse (constructor expression, không tạo entity);
+    // media được lấy riêng bằng MediaRepository.findRowsByPostIdIn
+    String SUMMARY_SELECT = "SELECT new com.dran.web_social.dto.projection.PostSummary("
+            + "p.id, p.content, p.likesCount, p.commentsCount, p.createAt, p.updateAt, "
+            + "u.userName, u.firstName, u.lastName, u.avatar) FROM Post p JOIN p.user u ";
+
+    @Query(SUMMARY_SELECT + "WHERE p.id = :id")
+    Optional<PostSummary> findSummaryById(@Param("id") Long id);
+
+    @Query(SUMMARY_SELECT + "WHERE p.id IN :ids")
+    List<PostSummary> findSummariesByIdIn(@Param("ids") Collection<Long> ids);
+
+    @Query(value = SUMMARY_SELECT, countQuery = "SELECT COUNT(p) FROM Post p")
+    Page<PostSummary> findSummaries(Pageable pageable);
+
+    @Query(value = SUMMARY_SELECT + "WHERE u.id = :userId",
+            countQuery = "SELECT COUNT(p) FROM Post p WHERE p.user.id = :userId")
+    Page<PostSummary> findSummariesByUserId(@Param("userId") Long userId, Pageable pageable);
+
+    // Keyset pagination theo (createAt, id), dùng index idx_posts_create_at_id và không cần COUNT(*)
+    @Query(SUMMARY_SELECT + "ORDER BY p.createAt DESC, p.id DESC")
+    Slice<PostSummary> findFeedSlice(Pageable pageable);
+
+    @Query(SUMMARY_SELECT + "WHERE p.createAt < :createAt OR (p.createAt = :createAt AND p.id < :id) "
+            + "ORDER BY p.createAt DESC, p.id DESC")
+    Slice<PostSummary> findFeedSliceAfter(@Param("createAt") Date createAt, @Param("id") Long id,
+            Pageable pageable);
+
+    @Query(SUMMARY_SELECT + "WHERE u.id = :userId ORDER BY p.createAt DESC, p.id DESC")
+    Slice<PostSummary> findUserFeedSlice(@Param("userId") Long userId, Pageable pageable);
+
+    @Query(SUMMARY_SELECT + "WHERE u.id = :userId "
+            + "AND (p.createAt < :createAt OR (p.createAt = :createAt AND p.id < :id)) "
+            + "ORDER BY p.createAt DESC, p.id DESC")
+    Slice<PostSummary> findUserFeedSliceAfter(@Param("userId") Long userId, @Param("createAt") Date createAt,
+            @Param("id") Long id, Pageable pageable);
+
+    @Query("SELECT p.id AS id, p.user.id AS userId, p.createAt AS createAt FROM Post p "
+            + "WHERE p.id > :afterId ORDER BY p.id ASC")
+    List<PostTimelineEntry> findTimelineEntries(@Param("afterId") Long afterId, Pageable pageable);
+
+    @Query("SELECT p.id AS id, p.likesCount AS likesCount, p.commentsCount AS commentsCount, "
+            + "p.createAt AS createAt FROM Post p WHERE p.id = :postId")
+    Optional<PostHotEntry> findHotEntryById(@Param("postId") Long postId);
+
+    @Query("SELECT p.id AS id, p.likesCount AS likesCount, p.commentsCount AS commentsCount, "
+            + "p.createAt AS createAt FROM Post p WHERE p.createAt >= :since AND p.id > :afterId ORDER BY p.id ASC")
+    List<PostHotEntry> findHotEntriesSince(@Param("since") Date since, @Param("afterId") Long afterId,
+            Pageable pageable);
 
     @Query("DELETE FROM Media m WHERE m.post.id = :postId")
     @Modifying
@@ -24,4 +88,32 @@ public interface PostRepository extends JpaRepository<Post, Long> {
     @Modifying
     @Transactional
     void deletePostById(@Param("postId") Long postId);
+
+    @Query("UPDATE Post p SET p.likesCount = CASE WHEN p.likesCount + :delta < 0 THEN 0 ELSE p.likesCount + :delta END WHERE p.id = :postId")
+    @Modifying
+    @Transactional
+    int incrementLikesCount(@Param("postId") Long postId, @Param("delta") int delta);
+
+    @Query("UPDATE Post p SET p.commentsCount = CASE WHEN p.commentsCount + :delta < 0 THEN 0 ELSE p.commentsCount + :delta END WHERE p.id = :postId")
+    @Modifying
+    @Transactional
+    int incrementCommentsCount(@Param("postId") Long postId, @Param("delta") int delta);
+
+    @Query("SELECT p.id AS id, p.likesCount AS likesCount FROM Post p WHERE p.id IN :ids")
+    List<LikesCountEntry> findLikesCountsByIdIn(@Param("ids") Collection<Long> ids);
+
+    @Query("SELECT p.likesCount FROM Post p WHERE p.id = :postId")
+    int findLikesCountById(@Param("postId") Long postId);
+
+    @Query("SELECT COALESCE(MAX(p.id), 0) FROM Post p")
+    long findMaxId();
+
+    // Tính lại counter từ bảng likes/comments cho một khoảng id (dùng khi counter bị lệch)
+    @Query(value = "UPDATE posts p SET "
+            + "p.likes_count = (SELECT COUNT(*) FROM likes_post lp WHERE lp.post_id = p.id AND lp.is_liked = true), "
+            + "p.comments_count = (SELECT COUNT(*) FROM comments_post c WHERE c.post_id = p.id AND c.deleted = false) "
+            + "WHERE p.id BETWEEN :fromId AND :toId", nativeQuery = true)
+    @Modifying
+    @Transactional
+    int reconcileCountersByIdRange(@Param("fromId") long fromId, @Param("toId") long toId);
 }
@@ -2,15 +2,28 @@ package com.dran.web_social.repositories;
 
 import java.util.Optional;
 
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 import com.dran.web_social.models.User;
 
 public interface UserRepository extends JpaRepository<User, Long> {
+    // userRoles là LAZY, các hàm load user dùng cho xác thực lấy luôn quyền trong cùng một query
+    @EntityGraph(attributePaths = { "userRoles", "userRoles.role" })
     Optional<User> findByUserName(String userName);
 
+    @EntityGraph(attributePaths = { "userRoles", "userRoles.role" })
     Optional<User> findByEmail(String email);
 
+    @Override
+    @EntityGraph(attributePaths = { "userRoles", "userRoles.role" })
+    Optional<User> findById(Long id);
+
+    @Query("SELECT u.id FROM User u WHERE u.userName = :userName")
+    Optional<Long> findIdByUserName(@Param("userName") String userName);
+
     boolean existsByUserName(String userName);
 
     boolean existsByEmail(String email);
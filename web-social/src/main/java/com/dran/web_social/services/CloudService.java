@@ -1,12 +1,25 @@
 package com.dran.web_social.services;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import org.springframework.web.multipart.MultipartFile;
 
 public interface CloudService {
     Map<String, String> uploadFile(MultipartFile file) throws IOException;
 
+    // Upload từ stream, chỉ đọc stream một lần (người gọi có thể bọc DigestInputStream để tính hash)
+    Map<String, String> uploadFile(InputStream input, String contentType) throws IOException;
+
+    // Upload file đã lưu tạm trên đĩa (dùng cho worker upload bất đồng bộ)
+    Map<String, String> uploadFile(Path path, String contentType) throws IOException;
+
     void deleteFile(String publicId);
+
+    // Xóa nhiều asset cùng loại media trong một request, trả về các publicId đã xóa xong (kể cả không còn tồn tại)
+    Set<String> deleteFiles(List<String> publicIds, String mediaType) throws IOException;
 }
@@ -0,0 +1,6 @@
+package com.dran.web_social.services;
+
+public interface CommentPathBackfillService {
+    // Điền path cho các comment cũ chưa có, trả về số comment đã được điền
+    int backfillPaths();
+}
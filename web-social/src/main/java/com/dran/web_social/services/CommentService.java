@@ -2,6 +2,7 @@ package com.dran.web_social.services;
 
 import com.dran.web_social.dto.request.CommentRequest;
 import com.dran.web_social.dto.response.CommentResponse;
+import com.dran.web_social.dto.response.CursorPageResponse;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 
@@ -18,4 +19,10 @@ public interface CommentService {
     Page<CommentResponse> getListCommentByPostId(Long postId, Pageable pageable);
 
     CommentResponse getCommentById(Long commentId, String currentUsername);
+
+    // Comment kèm cả cây con (tối đa app.comments.thread.max-size comment), lồng như trang comment
+    CommentResponse getCommentThread(Long commentId, String currentUsername);
+
+    // Reply trực tiếp của một comment theo keyset pagination, cursor null hoặc rỗng cho trang đầu
+    CursorPageResponse<CommentResponse> getReplies(Long commentId, String cursor, int size, String currentUsername);
 }
\ No newline at end of file
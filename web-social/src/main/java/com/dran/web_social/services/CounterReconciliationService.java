@@ -0,0 +1,10 @@
+package com.dran.web_social.services;
+
+public interface CounterReconciliationService {
+    // Xóa dòng like cũ (is_liked = false, trùng lặp) để unique key (post_id, user_id) áp dụng được
+    int normalizePostLikes();
+
+    int reconcilePostCounters();
+
+    int reconcileCommentCounters();
+}
@@ -0,0 +1,22 @@
+package com.dran.web_social.services;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.Map;
+
+import org.springframework.web.multipart.MultipartFile;
+
+// Upload qua CloudService; ảnh được resize, re-encode và bỏ metadata trước khi upload, file khác giữ nguyên
+public interface ImageProcessingService {
+    Map<String, String> uploadImage(MultipartFile file) throws IOException;
+
+    Map<String, String> uploadImage(Path path, String contentType) throws IOException;
+
+    // Xử lý và upload từ một stream chỉ được đọc một lần; phần decoder không đọc tới vẫn còn trong stream
+    Map<String, String> uploadImage(InputStream input, String contentType, long size) throws IOException;
+
+    Map<String, String> uploadAvatar(MultipartFile file) throws IOException;
+
+    Map<String, Long> getStats();
+}
@@ -0,0 +1,10 @@
+package com.dran.web_social.services;
+
+import java.util.Map;
+
+public interface LikeBroadcastService {
+    // Gửi số like mới nhất của các bài viết có thay đổi kể từ lần gửi trước
+    int broadcastPending();
+
+    Map<String, Long> getStats();
+}
@@ -1,10 +1,20 @@
 package com.dran.web_social.services;
 
+import java.util.Collection;
+import java.util.Set;
+
+import com.dran.web_social.dto.request.LikeStatusRequest;
 import com.dran.web_social.dto.response.LikeResponse;
+import com.dran.web_social.dto.response.LikeStatusResponse;
 
 public interface LikeService {
     
     LikeResponse toggleLikePost(String username, Long postId);
+
+    // Idempotent: gọi lại nhiều lần cho cùng kết quả
+    LikeResponse likePost(Long userId, Long postId);
+
+    LikeResponse unlikePost(Long userId, Long postId);
     
     LikeResponse toggleLikeComment(String username, Long commentId);
     
@@ -12,7 +22,14 @@ public interface LikeService {
     
     boolean isCommentLikedByUser(Long commentId, Long userId);
     
+    Set<Long> getLikedPostIds(Long userId, Collection<Long> postIds);
+
+    Set<Long> getLikedCommentIds(Long userId, Collection<Long> commentIds);
+    
     int getPostLikesCount(Long postId);
     
     int getCommentLikesCount(Long commentId);
-}
\ No newline at end of file
+
+    // Trạng thái like và số like của nhiều bài viết/comment cho một người xem (userId có thể null)
+    LikeStatusResponse getLikeStatuses(Long userId, LikeStatusRequest request);
+}
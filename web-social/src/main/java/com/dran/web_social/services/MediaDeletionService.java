@@ -0,0 +1,13 @@
+package com.dran.web_social.services;
+
+import java.util.Map;
+
+public interface MediaDeletionService {
+    // Xóa một lô asset đến hạn trong outbox, trả về số bản ghi đã xử lý
+    int dispatch();
+
+    // Đưa các bản ghi DEAD về PENDING để thử lại từ đầu
+    int requeueDeadLetters();
+
+    Map<String, Long> getStats();
+}
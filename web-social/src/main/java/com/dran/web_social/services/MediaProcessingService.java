@@ -0,0 +1,16 @@
+package com.dran.web_social.services;
+
+import java.util.List;
+
+import org.springframework.web.multipart.MultipartFile;
+
+import com.dran.web_social.models.Media;
+import com.dran.web_social.models.Post;
+
+public interface MediaProcessingService {
+    // Lưu file tạm trên đĩa và tạo các media PENDING (chưa lưu database) cho bài viết
+    List<Media> stage(List<MultipartFile> files, Post post);
+
+    // Xóa file tạm khi không lưu được media vào database
+    void discardStaged(List<Media> media);
+}
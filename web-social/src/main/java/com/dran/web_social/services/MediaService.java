@@ -1,5 +1,10 @@
 package com.dran.web_social.services;
 
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.Map;
+
 import org.springframework.web.multipart.MultipartFile;
 
 import com.dran.web_social.models.Media;
@@ -10,4 +15,15 @@ public interface MediaService {
     void deleteMedia(Long mediaId);
 
     Media updateMedia(Long mediaId, MultipartFile newFile);
+
+    // Upload file, dùng lại asset đã có nếu trùng nội dung. Kết quả gồm url, public_id, content_hash, type
+    Map<String, String> uploadDeduplicated(MultipartFile file) throws IOException;
+
+    Map<String, String> uploadDeduplicated(Path path, String contentType, String contentHash) throws IOException;
+
+    // Ghi yêu cầu xóa asset vào outbox trong transaction hiện tại; dispatcher chỉ xóa khi không còn media tham chiếu
+    void scheduleAssetDeletion(String publicId, String mediaType);
+
+    // Gọi trong transaction ghi media trước khi gắn các asset này vào media; lỗi nếu asset đã được xác nhận xóa
+    void reserveAssets(Collection<String> publicIds);
 }
@@ -0,0 +1,14 @@
+package com.dran.web_social.services;
+
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.web.multipart.MultipartFile;
+
+public interface MediaUploadService {
+    // Upload song song, kết quả trả về theo đúng thứ tự của files. Lỗi một file thì hủy các file còn lại
+    List<Map<String, String>> uploadAll(List<MultipartFile> files);
+
+    // Xóa các file đã upload khi bước ghi database thất bại
+    void deleteUploaded(List<Map<String, String>> uploaded);
+}
@@ -6,6 +6,7 @@ import java.util.List;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import com.dran.web_social.dto.request.PostRequest;
+import com.dran.web_social.dto.response.CursorPageResponse;
 import com.dran.web_social.dto.response.PostResponse;
 import com.dran.web_social.models.User;
 
@@ -13,6 +14,9 @@ public interface PostService {
 
     PostResponse createPostWithMedia(String username, PostRequest request, List<MultipartFile> files);
 
+    // Tạo bài viết ngay với media PENDING, file được upload nền
+    PostResponse createPostWithMediaAsync(String username, PostRequest request, List<MultipartFile> files);
+
     PostResponse getPostById(Long id);
 
     PostResponse getPostByIdWithLikeStatus(Long id, String username);
@@ -25,6 +29,13 @@ public interface PostService {
 
     Page<PostResponse> getPostsByUserWithLikeStatus(String username, Pageable pageable, String currentUsername);
 
+    Page<PostResponse> getHotPosts(Pageable pageable, String currentUsername);
+
+    CursorPageResponse<PostResponse> getPostsByCursor(String cursor, int size, String currentUsername);
+
+    CursorPageResponse<PostResponse> getPostsByUserByCursor(String username, String cursor, int size,
+            String currentUsername);
+
     PostResponse updatePost(String username, Long postId, PostRequest request, List<MultipartFile> files);
 
     void deletePost(User user, Long postId);
@@ -1,6 +1,7 @@
 package com.dran.web_social.services;
 
 import com.dran.web_social.dto.response.CommentResponse;
+import com.dran.web_social.dto.response.MediaResponse;
 
 public interface WebSocketService {
     void notifyCommentCreated(Long postId, CommentResponse comment, String username);
@@ -8,4 +9,8 @@ public interface WebSocketService {
     void notifyCommentUpdated(Long postId, CommentResponse comment, String username);
 
     void notifyCommentDeleted(Long postId, Long commentId, String username);
+
+    void notifyMediaStatusChanged(Long postId, MediaResponse media);
+
+    void notifyLikeCountChanged(Long postId, int likesCount);
 }
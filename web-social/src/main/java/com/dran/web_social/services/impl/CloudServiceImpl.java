@@ -1,50 +1,65 @@
 package com.dran.web_social.services.impl;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
 import com.cloudinary.Cloudinary;
+import com.cloudinary.api.ApiResponse;
 import com.cloudinary.utils.ObjectUtils;
 import com.dran.web_social.services.CloudService;
 
 import lombok.RequiredArgsConstructor;
 
 @Service
+@ConditionalOnProperty(name = "app.storage.type", havingValue = "cloudinary", matchIfMissing = true)
 @RequiredArgsConstructor
 public class CloudServiceImpl implements CloudService {
     private final Cloudinary cloudinary;
 
+    // Cloudinary yêu cầu mỗi chunk (trừ chunk cuối) tối thiểu 5MB
+    @Value("${app.storage.upload.chunk-size-bytes:6291456}")
+    private int chunkSize;
+
     @Override
     public Map<String, String> uploadFile(MultipartFile file) {
-        try {
-            String resourceType = "auto";
-            String contentType = file.getContentType();
-
-            if (contentType != null) {
-                if (contentType.startsWith("image/")) {
-                    resourceType = "image";
-                } else if (contentType.startsWith("video/")) {
-                    resourceType = "video";
-                } else {
-                    resourceType = "raw";
-                }
-            }
-
-            Map<?, ?> result = cloudinary.uploader().upload(file.getBytes(),
-                    ObjectUtils.asMap("resource_type", resourceType));
-
-            return Map.of(
-                    "url", result.get("secure_url").toString(),
-                    "public_id", result.get("public_id").toString());
+        // Đọc từ InputStream theo từng chunk thay vì getBytes() để không copy cả file vào heap
+        try (InputStream input = file.getInputStream()) {
+            return uploadFile(input, file.getContentType());
         } catch (IOException e) {
             e.printStackTrace();
             throw new RuntimeException("Lỗi khi upload file lên Cloudinary", e);
         }
     }
 
+    @Override
+    public Map<String, String> uploadFile(Path path, String contentType) throws IOException {
+        try (InputStream input = Files.newInputStream(path)) {
+            return uploadFile(input, contentType);
+        }
+    }
+
+    // uploadLarge gửi file thành nhiều request, mỗi request chỉ giữ một buffer chunkSize byte trong heap
+    @Override
+    public Map<String, String> uploadFile(InputStream input, String contentType) throws IOException {
+        Map<?, ?> result = cloudinary.uploader().uploadLarge(input,
+                ObjectUtils.asMap("resource_type", resourceType(contentType)), chunkSize);
+
+        return Map.of(
+                "url", result.get("secure_url").toString(),
+                "public_id", result.get("public_id").toString());
+    }
+
     @Override
     public void deleteFile(String publicId) {
         try {
@@ -55,4 +70,40 @@ public class CloudServiceImpl implements CloudService {
         }
     }
 
+    @Override
+    public Set<String> deleteFiles(List<String> publicIds, String mediaType) throws IOException {
+        ApiResponse response;
+        try {
+            // Bản ghi cũ không có loại media, mặc định là ảnh như deleteFile
+            String resourceType = mediaType == null ? "image" : resourceType(mediaType + "/");
+            response = cloudinary.api().deleteResources(publicIds, ObjectUtils.asMap("resource_type", resourceType));
+        } catch (IOException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IOException("Lỗi khi xóa file trên Cloudinary", e);
+        }
+
+        Set<String> deleted = new HashSet<>();
+        Map<?, ?> statuses = (Map<?, ?>) response.get("deleted");
+        if (statuses != null) {
+            statuses.forEach((publicId, status) -> {
+                if ("deleted".equals(status) || "not_found".equals(status)) {
+                    deleted.add(publicId.toString());
+                }
+            });
+        }
+        return deleted;
+    }
+
+    private String resourceType(String contentType) {
+        if (contentType == null) {
+            return "auto";
+        }
+        if (contentType.startsWith("image/")) {
+            return "image";
+        } else if (contentType.startsWith("video/")) {
+            return "video";
+        }
+        return "raw";
+    }
 }
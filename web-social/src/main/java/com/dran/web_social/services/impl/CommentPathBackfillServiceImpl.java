@@ -0,0 +1,51 @@
+package com.dran.web_social.services.impl;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.dran.web_social.repositories.CommentRepository;
+import com.dran.web_social.services.CommentPathBackfillService;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class CommentPathBackfillServiceImpl implements CommentPathBackfillService {
+
+    private final CommentRepository commentRepository;
+
+    @Value("${app.comments.path-backfill.chunk-size:1000}")
+    private int chunkSize;
+
+    // Mỗi khoảng id là một transaction ngắn; mỗi lượt quét điền path cho các comment có cha đã có path,
+    // lặp tới khi một lượt không điền thêm được comment nào
+    @Override
+    public synchronized int backfillPaths() {
+        long maxId = commentRepository.findMaxId();
+        int filled = 0;
+        for (long fromId = 1; fromId <= maxId; fromId += chunkSize) {
+            filled += commentRepository.backfillRootPaths(fromId, fromId + chunkSize - 1);
+        }
+
+        int passFilled;
+        do {
+            passFilled = 0;
+            for (long fromId = 1; fromId <= maxId; fromId += chunkSize) {
+                passFilled += commentRepository.backfillChildPaths(fromId, fromId + chunkSize - 1);
+            }
+            filled += passFilled;
+        } while (passFilled > 0);
+
+        log.info("Backfilled paths for {} comments", filled);
+        return filled;
+    }
+
+    // Mặc định tắt ("-"), bật bằng cách cấu hình app.comments.path-backfill-cron
+    @Scheduled(cron = "${app.comments.path-backfill-cron:-}")
+    public void scheduledBackfill() {
+        backfillPaths();
+    }
+}
@@ -1,8 +1,11 @@
 package com.dran.web_social.services.impl;
 
 import com.dran.web_social.custom.exception.ResourceNotFoundException;
+import com.dran.web_social.dto.projection.ReplyRef;
 import com.dran.web_social.dto.request.CommentRequest;
 import com.dran.web_social.dto.response.CommentResponse;
+import com.dran.web_social.dto.response.CursorPageResponse;
+import com.dran.web_social.events.PostChangedEvent;
 import com.dran.web_social.mappers.CommentMapper;
 import com.dran.web_social.models.CommentPost;
 import com.dran.web_social.models.Post;
@@ -11,19 +14,30 @@ import com.dran.web_social.repositories.CommentRepository;
 import com.dran.web_social.repositories.PostRepository;
 import com.dran.web_social.repositories.UserRepository;
 import com.dran.web_social.services.CommentService;
+import com.dran.web_social.services.LikeService;
+import com.dran.web_social.utils.CommentPathUtil;
 import com.dran.web_social.utils.CommentUtil;
+import com.dran.web_social.utils.CursorUtil;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.security.access.AccessDeniedException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 @Service
 @RequiredArgsConstructor
@@ -34,6 +48,26 @@ public class CommentServiceImpl implements CommentService {
     private final PostRepository postRepository;
     private final UserRepository userRepository;
     private final CommentMapper commentMapper;
+    private final LikeService likeService;
+    private final ApplicationEventPublisher eventPublisher;
+
+    @Value("${app.comments.replies.per-parent-limit:20}")
+    private int repliesPerParent;
+
+    // Reply sâu hơn mức này không được load kèm trang comment
+    @Value("${app.comments.replies.max-depth:10}")
+    private int maxReplyDepth;
+
+    // Giới hạn theo cấp cha nhân lên qua mỗi tầng, nên cần thêm tổng số reply cho mỗi thread và cả trang
+    @Value("${app.comments.replies.per-thread-limit:50}")
+    private int repliesPerThread;
+
+    @Value("${app.comments.replies.per-page-limit:300}")
+    private int repliesPerPage;
+
+    // Số comment tối đa của một cây con trả về qua getCommentThread
+    @Value("${app.comments.thread.max-size:500}")
+    private int maxThreadSize;
 
     @Override
     @Transactional
@@ -67,15 +101,16 @@ public class CommentServiceImpl implements CommentService {
             int newLevel = parentComment.getLevel() + 1;
             comment.setLevel(Math.min(newLevel, 2));
 
-            parentComment.setRepliesCount(parentComment.getRepliesCount() + 1);
-            commentRepository.save(parentComment);
+            commentRepository.incrementRepliesCount(parentComment.getId(), 1);
         }
 
         CommentPost savedComment = commentRepository.save(comment);
-        post.setCommentsCount(post.getCommentsCount() + 1);
-        postRepository.save(post);
+        // Id chỉ có sau khi insert; path được ghi vào cùng transaction khi flush
+        savedComment.setPath(childPath(savedComment.getParent(), savedComment.getId()));
+        postRepository.incrementCommentsCount(postId, 1);
+        eventPublisher.publishEvent(new PostChangedEvent(postId));
 
-        CommentResponse response = commentMapper.commentToCommentResponse(savedComment, user.getId());
+        CommentResponse response = commentMapper.commentToCommentResponse(savedComment, user.getId(), Set.of());
 
         return response;
     }
@@ -104,12 +139,21 @@ public class CommentServiceImpl implements CommentService {
         return response;
     }
 
+    // Path chứa id của mọi tổ tiên nên chỉ cần một query; comment chưa có path (chưa backfill hoặc sâu hơn
+    // MAX_DEPTH) thì đi ngược lên cha tới tổ tiên đầu tiên có path rồi kiểm tra phần còn lại theo path đó
     private boolean isAnyAncestorDeleted(CommentPost comment) {
+        if (comment.getPath() != null) {
+            List<Long> ancestorIds = CommentPathUtil.ancestorIds(comment.getPath());
+            return !ancestorIds.isEmpty() && commentRepository.existsByIdInAndDeletedTrue(ancestorIds);
+        }
         CommentPost current = comment.getParent();
         while (current != null) {
             if (current.getDeleted() == true) {
                 return true;
             }
+            if (current.getPath() != null) {
+                return isAnyAncestorDeleted(current);
+            }
             current = current.getParent();
         }
         return false;
@@ -132,60 +176,65 @@ public class CommentServiceImpl implements CommentService {
             throw new AccessDeniedException("Có chuyện gì đó xảy ra, hình như bình luận này đã bị xóa");
         }
 
-        comment.setDeleted(true);
-        commentRepository.save(comment);
+        // Đánh dấu xóa cả cây con bằng UPDATE hàng loạt, số dòng bị ảnh hưởng gồm cả chính comment
+        int deletedCount = markSubtreeDeleted(comment);
 
         if (comment.getParent() != null) {
-            CommentPost parent = comment.getParent();
-            parent.setRepliesCount(Math.max(0, parent.getRepliesCount() - 1));
-            commentRepository.save(parent);
+            commentRepository.incrementRepliesCount(comment.getParent().getId(), -1);
         }
 
-        // Post post = comment.getPost();
-        // int deletedCount = countDeletedCommentsRecursively(commentId);
-        int deletedCount = markCommentsDeletedRecursively(comment);
-
         // Update comment count của post
-        Post post = comment.getPost();
-        post.setCommentsCount(Math.max(0, post.getCommentsCount() - deletedCount));
-        postRepository.save(post);
+        postRepository.incrementCommentsCount(comment.getPost().getId(), -deletedCount);
+        eventPublisher.publishEvent(new PostChangedEvent(comment.getPost().getId()));
     }
 
-    private int markCommentsDeletedRecursively(CommentPost comment) {
-        int count = 1;
-
-        comment.setDeleted(true);
-        commentRepository.save(comment);
+    // Có path thì một câu UPDATE theo prefix; chưa có path (dữ liệu cũ chưa backfill) thì UPDATE từng tầng theo parent_id.
+    // Trong lúc backfill, cây con có path vẫn có thể chứa comment chưa có path: các comment đó (và mọi
+    // comment bên dưới, vốn cũng chưa có path) được xóa tiếp theo parent_id
+    private int markSubtreeDeleted(CommentPost comment) {
+        if (comment.getPath() != null) {
+            int count = commentRepository.markSubtreeDeletedByPath(comment.getPath());
+            List<Long> orphanIds = commentRepository.findActiveReplyIdsWithoutPathUnder(comment.getPath());
+            return orphanIds.isEmpty() ? count : count + markDeletedByParentWalk(orphanIds);
+        }
+        return markDeletedByParentWalk(List.of(comment.getId()));
+    }
 
-        List<CommentPost> replies = commentRepository.findAllRepliesByParentId(comment.getId());
-        for (CommentPost reply : replies) {
-            if (!reply.getDeleted()) {
-                count += markCommentsDeletedRecursively(reply);
+    private int markDeletedByParentWalk(List<Long> rootIds) {
+        int count = commentRepository.markDeletedByIdIn(rootIds);
+        List<Long> parentIds = rootIds;
+        while (true) {
+            List<Long> childIds = commentRepository.findActiveReplyIdsByParentIds(parentIds);
+            if (childIds.isEmpty()) {
+                return count;
             }
+            count += commentRepository.markDeletedByIdIn(childIds);
+            parentIds = childIds;
         }
-        return count;
     }
 
     @Override
+    @Transactional(readOnly = true)
     public Page<CommentResponse> getCommentsByPostId(Long postId, Pageable pageable, String currentUsername) {
-        User currentUser = null;
-        if (currentUsername != null) {
-            currentUser = userRepository.findByUserName(currentUsername).orElse(null);
-        }
+        Long currentUserId = currentUsername != null
+                ? userRepository.findIdByUserName(currentUsername).orElse(null)
+                : null;
 
         Page<CommentPost> topLevelComments = commentRepository.findTopLevelCommentsByPostId(postId, pageable);
-        List<CommentPost> allComments = commentRepository.findByPostId(postId);
+        List<CommentPost> replies = loadReplies(topLevelComments.getContent());
 
         List<CommentResponse> result = CommentUtil.processCommentsForAPI(
                 topLevelComments.getContent(),
-                allComments,
-                currentUser != null ? currentUser.getId() : null,
+                replies,
+                currentUserId,
+                likedCommentIds(currentUserId, topLevelComments.getContent(), replies),
                 commentMapper);
 
         return new PageImpl<>(result, pageable, topLevelComments.getTotalElements());
     }
 
     @Override
+    @Transactional(readOnly = true)
     public CommentResponse getCommentById(Long commentId, String currentUsername) {
         User currentUser = null;
         if (currentUsername != null) {
@@ -199,11 +248,161 @@ public class CommentServiceImpl implements CommentService {
     }
 
     @Override
+    @Transactional(readOnly = true)
+    public CommentResponse getCommentThread(Long commentId, String currentUsername) {
+        CommentPost comment = commentRepository.findById(commentId)
+                .orElseThrow(() -> new ResourceNotFoundException("Không tìm thấy comment với ID: " + commentId));
+        Long currentUserId = currentUsername != null
+                ? userRepository.findIdByUserName(currentUsername).orElse(null)
+                : null;
+
+        List<CommentPost> descendants = comment.getDeleted() ? List.of() : loadSubtree(comment);
+        CommentResponse response = CommentUtil.processCommentsForAPI(List.of(comment), descendants, currentUserId,
+                likedCommentIds(currentUserId, List.of(comment), descendants), commentMapper).get(0);
+        // Số comment trong cây con (không tính chính nó) đếm bằng một range query theo path, để client biết
+        // cây có bị cắt ở maxThreadSize không; comment không có path (sâu hơn MAX_DEPTH, chưa backfill) không được đếm
+        if (comment.getPath() != null && !comment.getDeleted()) {
+            response.setThreadSize(commentRepository.countActiveSubtreeByPath(comment.getPath()) - 1);
+        }
+        return response;
+    }
+
+    @Override
+    @Transactional(readOnly = true)
     public Page<CommentResponse> getListCommentByPostId(Long postId, Pageable pageable) {
         Page<CommentPost> comments = commentRepository.findTopLevelCommentsByPostId(postId, pageable);
-        List<CommentPost> allReplies = commentRepository.findByPostId(postId);
+        List<CommentPost> replies = loadReplies(comments.getContent());
         List<CommentResponse> processed = CommentUtil.processCommentsForAPI(
-                comments.getContent(), allReplies, null, commentMapper);
+                comments.getContent(), replies, null, Set.of(), commentMapper);
         return new PageImpl<>(processed, pageable, comments.getTotalElements());
     }
+
+    @Override
+    @Transactional(readOnly = true)
+    public CursorPageResponse<CommentResponse> getReplies(Long commentId, String cursor, int size,
+            String currentUsername) {
+        if (!commentRepository.existsById(commentId)) {
+            throw new ResourceNotFoundException("Không tìm thấy comment với ID: " + commentId);
+        }
+        Long currentUserId = currentUsername != null
+                ? userRepository.findIdByUserName(currentUsername).orElse(null)
+                : null;
+        CursorUtil.Cursor after = CursorUtil.decode(cursor);
+        Pageable limit = PageRequest.of(0, size);
+
+        Slice<CommentPost> replies = after == null
+                ? commentRepository.findReplySlice(commentId, limit)
+                : commentRepository.findReplySliceAfter(commentId, after.getCreateAt(), after.getId(), limit);
+
+        // Không lồng reply cấp dưới, client gọi tiếp endpoint này khi repliesCount > 0
+        Set<Long> likedCommentIds = likedCommentIds(currentUserId, replies.getContent(), List.of());
+        List<CommentResponse> content = replies.getContent().stream()
+                .map(reply -> {
+                    CommentResponse response = commentMapper.commentToCommentResponse(reply, currentUserId,
+                            likedCommentIds);
+                    response.setReplies(List.of());
+                    return response;
+                })
+                .toList();
+
+        String nextCursor = null;
+        if (replies.hasNext() && !content.isEmpty()) {
+            CommentPost last = replies.getContent().get(replies.getContent().size() - 1);
+            nextCursor = CursorUtil.encode(last.getCreateAt(), last.getId());
+        }
+
+        return CursorPageResponse.<CommentResponse>builder()
+                .content(content)
+                .nextCursor(nextCursor)
+                .hasNext(replies.hasNext())
+                .size(content.size())
+                .build();
+    }
+
+    // Trạng thái like của mọi comment trong response lấy bằng một lần gọi thay vì mỗi comment một query
+    private Set<Long> likedCommentIds(Long currentUserId, List<CommentPost> comments, List<CommentPost> replies) {
+        if (currentUserId == null) {
+            return Set.of();
+        }
+        List<Long> commentIds = new ArrayList<>();
+        comments.forEach(comment -> commentIds.add(comment.getId()));
+        replies.forEach(reply -> commentIds.add(reply.getId()));
+        return likeService.getLikedCommentIds(currentUserId, commentIds);
+    }
+
+    // Cha chưa có path (dữ liệu cũ chưa backfill) thì để null, job backfill sẽ điền sau. Cha đã ở tầng
+    // MAX_DEPTH thì reply vẫn gắn vào đúng cha nhưng không có path (cột path có giới hạn độ dài); cây con
+    // của nó được đọc/xóa theo parent_id
+    private String childPath(CommentPost parent, Long id) {
+        if (parent == null) {
+            return CommentPathUtil.ROOT + id + "/";
+        }
+        if (parent.getPath() == null || CommentPathUtil.depth(parent.getPath()) >= CommentPathUtil.MAX_DEPTH) {
+            return null;
+        }
+        return parent.getPath() + id + "/";
+    }
+
+    // Cây con có path đọc bằng một range query theo prefix (cha luôn đứng trước con khi sắp theo path nên
+    // cắt ở maxThreadSize vẫn giữ đủ tổ tiên); comment không có path trong cây đọc tiếp theo parent_id
+    private List<CommentPost> loadSubtree(CommentPost comment) {
+        if (comment.getPath() == null) {
+            return loadByParentWalk(commentRepository.findActiveReplyIdsByParentIds(List.of(comment.getId())),
+                    maxThreadSize);
+        }
+        List<CommentPost> subtree = new ArrayList<>(commentRepository.findSubtreeByPath(comment.getPath(),
+                PageRequest.of(0, maxThreadSize + 1)));
+        subtree.removeIf(node -> node.getId().equals(comment.getId()));
+        if (subtree.size() < maxThreadSize) {
+            List<Long> withoutPath = commentRepository.findActiveReplyIdsWithoutPathUnder(comment.getPath());
+            subtree.addAll(loadByParentWalk(withoutPath, maxThreadSize - subtree.size()));
+        }
+        return subtree.size() > maxThreadSize ? subtree.subList(0, maxThreadSize) : subtree;
+    }
+
+    // Load các comment ids và mọi comment bên dưới, từng tầng một, tối đa budget comment
+    private List<CommentPost> loadByParentWalk(List<Long> ids, int budget) {
+        List<CommentPost> loaded = new ArrayList<>();
+        while (!ids.isEmpty() && loaded.size() < budget) {
+            List<Long> level = ids.subList(0, Math.min(ids.size(), budget - loaded.size()));
+            loaded.addAll(commentRepository.findAllWithUserByIdIn(level));
+            ids = commentRepository.findActiveReplyIdsByParentIds(level);
+        }
+        return loaded;
+    }
+
+    // Chỉ load reply của các comment trong trang, từng tầng một, mỗi comment cha tối đa repliesPerParent reply.
+    // Mỗi thread (comment gốc) tối đa repliesPerThread reply và cả trang tối đa repliesPerPage; thread
+    // đã hết ngân sách thì không đi xuống tầng tiếp theo, phần còn lại client lấy qua getReplies
+    private List<CommentPost> loadReplies(List<CommentPost> topComments) {
+        List<CommentPost> replies = new ArrayList<>();
+        Map<Long, Long> threadOf = new HashMap<>();
+        Map<Long, Integer> threadCounts = new HashMap<>();
+        topComments.stream()
+                .filter(comment -> !comment.getDeleted())
+                .forEach(comment -> threadOf.put(comment.getId(), comment.getId()));
+        List<Long> parentIds = List.copyOf(threadOf.keySet());
+        for (int depth = 0; depth < maxReplyDepth && !parentIds.isEmpty() && replies.size() < repliesPerPage; depth++) {
+            List<ReplyRef> refs = commentRepository.findReplyRefsByParentIds(parentIds, repliesPerParent);
+            List<Long> replyIds = new ArrayList<>();
+            for (ReplyRef ref : refs) {
+                if (replies.size() + replyIds.size() >= repliesPerPage) {
+                    break;
+                }
+                Long thread = threadOf.get(ref.getParentId());
+                if (threadCounts.getOrDefault(thread, 0) >= repliesPerThread) {
+                    continue;
+                }
+                threadCounts.merge(thread, 1, Integer::sum);
+                threadOf.put(ref.getId(), thread);
+                replyIds.add(ref.getId());
+            }
+            if (replyIds.isEmpty()) {
+                break;
+            }
+            replies.addAll(commentRepository.findAllWithUserByIdIn(replyIds));
+            parentIds = replyIds;
+        }
+        return replies;
+    }
 }
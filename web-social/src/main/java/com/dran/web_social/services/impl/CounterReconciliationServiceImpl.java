@@ -0,0 +1,74 @@
+package com.dran.web_social.services.impl;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.dran.web_social.events.LikeCountChangedEvent.Target;
+import com.dran.web_social.redis.LikeCounterService;
+import com.dran.web_social.repositories.CommentRepository;
+import com.dran.web_social.repositories.LikePostRepository;
+import com.dran.web_social.repositories.PostRepository;
+import com.dran.web_social.services.CounterReconciliationService;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class CounterReconciliationServiceImpl implements CounterReconciliationService {
+
+    private final PostRepository postRepository;
+    private final CommentRepository commentRepository;
+    private final LikePostRepository likePostRepository;
+    private final LikeCounterService likeCounterService;
+
+    @Value("${app.counters.reconcile-chunk-size:1000}")
+    private int chunkSize;
+
+    @Override
+    public int normalizePostLikes() {
+        int removed = likePostRepository.deleteUnliked() + likePostRepository.deleteDuplicates();
+        log.info("Removed {} stale post like rows", removed);
+        return removed;
+    }
+
+    // Mỗi khoảng id chạy trong một transaction riêng để không khóa cả bảng quá lâu
+    @Override
+    public int reconcilePostCounters() {
+        long maxId = postRepository.findMaxId();
+        int processed = 0;
+        for (long fromId = 1; fromId <= maxId; fromId += chunkSize) {
+            long from = fromId;
+            long to = fromId + chunkSize - 1;
+            // Delta like chưa flush được trừ ra trong cùng transaction với lần đếm lại để không bị cộng hai lần
+            processed += likeCounterService.reconcile(Target.POST, from, to,
+                    () -> postRepository.reconcileCountersByIdRange(from, to));
+        }
+        log.info("Reconciled counters for {} posts", processed);
+        return processed;
+    }
+
+    @Override
+    public int reconcileCommentCounters() {
+        long maxId = commentRepository.findMaxId();
+        int processed = 0;
+        for (long fromId = 1; fromId <= maxId; fromId += chunkSize) {
+            long from = fromId;
+            long to = fromId + chunkSize - 1;
+            processed += likeCounterService.reconcile(Target.COMMENT, from, to,
+                    () -> commentRepository.reconcileCountersByIdRange(from, to));
+        }
+        log.info("Reconciled counters for {} comments", processed);
+        return processed;
+    }
+
+    // Mặc định tắt ("-"), bật bằng cách cấu hình app.counters.reconcile-cron
+    @Scheduled(cron = "${app.counters.reconcile-cron:-}")
+    public void scheduledReconcile() {
+        normalizePostLikes();
+        reconcilePostCounters();
+        reconcileCommentCounters();
+    }
+}
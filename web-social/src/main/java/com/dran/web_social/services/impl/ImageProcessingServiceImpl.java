@@ -0,0 +1,496 @@
+package com.dran.web_social.services.impl;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.geom.AffineTransform;
+import java.awt.image.BufferedImage;
+import java.io.BufferedInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.imageio.IIOException;
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.metadata.IIOMetadata;
+import javax.imageio.metadata.IIOMetadataNode;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+import org.w3c.dom.NodeList;
+
+import com.dran.web_social.custom.exception.BadRequestException;
+import com.dran.web_social.custom.exception.ServiceUnavailableException;
+import com.dran.web_social.services.CloudService;
+import com.dran.web_social.services.ImageProcessingService;
+
+import jakarta.annotation.PreDestroy;
+import lombok.AllArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Xử lý ảnh trước khi upload: decode, xoay theo EXIF orientation, thu nhỏ về
+ * kích thước tối đa, re-encode (JPEG theo chất lượng cấu hình, PNG nếu ảnh
+ * có alpha) và không ghi lại metadata nên EXIF/GPS bị loại bỏ. Ảnh không bao
+ * giờ được upload nguyên bản: pool đầy quá thời gian chờ thì trả 503, không
+ * decode được thì trả 400. Ảnh lớn được decode với subsampling và tổng số
+ * pixel đang decode cùng lúc bị giới hạn để không làm tràn heap. Chỉ file
+ * không phải ảnh (video, ...) và GIF (không có EXIF) được upload nguyên bản.
+ */
+@Service
+@Slf4j
+public class ImageProcessingServiceImpl implements ImageProcessingService {
+    private static final Set<String> SUPPORTED_TYPES = Set.of("image/jpeg", "image/jpg", "image/png", "image/bmp");
+    private static final Set<String> PASSTHROUGH_IMAGE_TYPES = Set.of("image/gif");
+    private static final long PIXELS_PER_PERMIT = 1_000_000L;
+    private static final String JPEG_METADATA_FORMAT = "javax_imageio_jpeg_image_1.0";
+    private static final int EXIF_MARKER = 0xE1;
+    private static final int EXIF_ORIENTATION_TAG = 0x0112;
+
+    private final CloudService cloudService;
+    private final ThreadPoolExecutor workers;
+    // Số ảnh đang xử lý hoặc chờ trong hàng đợi
+    private final Semaphore slots;
+    // Ngân sách pixel (theo megapixel) cho các ảnh đang được decode cùng lúc
+    private final Semaphore pixelBudget;
+    private final int pixelPermits;
+    private final long queueWaitMillis;
+    private final int maxWidth;
+    private final int maxHeight;
+    private final int avatarMaxSize;
+    private final float quality;
+    private final long maxPixels;
+
+    private final AtomicLong processed = new AtomicLong();
+    private final AtomicLong skipped = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong bytesIn = new AtomicLong();
+    private final AtomicLong bytesOut = new AtomicLong();
+    private final AtomicLong processingNanos = new AtomicLong();
+
+    @FunctionalInterface
+    private interface IOSupplier<T> {
+        T get() throws IOException;
+    }
+
+    @AllArgsConstructor
+    private static class EncodedImage {
+        private final Path path;
+        private final String contentType;
+    }
+
+    public ImageProcessingServiceImpl(CloudService cloudService,
+            @Value("${app.image.workers:0}") int workerCount,
+            @Value("${app.image.queue-capacity:64}") int queueCapacity,
+            @Value("${app.image.max-width:2048}") int maxWidth,
+            @Value("${app.image.max-height:2048}") int maxHeight,
+            @Value("${app.image.avatar-max-size:512}") int avatarMaxSize,
+            @Value("${app.image.quality:0.82}") float quality,
+            @Value("${app.image.max-pixels:50000000}") long maxPixels,
+            @Value("${app.image.max-concurrent-pixels:64000000}") long maxConcurrentPixels,
+            @Value("${app.image.queue-wait-ms:5000}") long queueWaitMillis) {
+        this.cloudService = cloudService;
+        int threads = workerCount > 0 ? workerCount : Runtime.getRuntime().availableProcessors();
+        this.workers = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity));
+        this.slots = new Semaphore(threads + queueCapacity);
+        this.pixelPermits = (int) Math.max(1, Math.min(Integer.MAX_VALUE, maxConcurrentPixels / PIXELS_PER_PERMIT));
+        this.pixelBudget = new Semaphore(pixelPermits);
+        this.queueWaitMillis = queueWaitMillis;
+        this.maxWidth = maxWidth;
+        this.maxHeight = maxHeight;
+        this.avatarMaxSize = avatarMaxSize;
+        this.quality = quality;
+        this.maxPixels = maxPixels;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        workers.shutdownNow();
+    }
+
+    @Override
+    public Map<String, String> uploadImage(MultipartFile file) throws IOException {
+        return upload(file::getInputStream, file.getContentType(), file.getSize(), maxWidth, maxHeight,
+                () -> cloudService.uploadFile(file));
+    }
+
+    @Override
+    public Map<String, String> uploadImage(Path path, String contentType) throws IOException {
+        return upload(() -> Files.newInputStream(path), contentType, Files.size(path), maxWidth, maxHeight,
+                () -> cloudService.uploadFile(path, contentType));
+    }
+
+    @Override
+    public Map<String, String> uploadImage(InputStream input, String contentType, long size) throws IOException {
+        // Stream chỉ đọc được một lần: đoán loại bằng mark/reset trên buffer riêng (nằm trên mọi
+        // DigestInputStream của người gọi nên mỗi byte chỉ được hash một lần), decoder và upload không đóng stream
+        InputStream buffered = new BufferedInputStream(input);
+        InputStream shared = new FilterInputStream(buffered) {
+            @Override
+            public void close() {
+            }
+        };
+        return upload(() -> shared, contentType, size, maxWidth, maxHeight,
+                () -> cloudService.uploadFile(shared, contentType));
+    }
+
+    @Override
+    public Map<String, String> uploadAvatar(MultipartFile file) throws IOException {
+        return upload(file::getInputStream, file.getContentType(), file.getSize(), avatarMaxSize, avatarMaxSize,
+                () -> cloudService.uploadFile(file));
+    }
+
+    @Override
+    public Map<String, Long> getStats() {
+        long count = processed.get();
+        Map<String, Long> stats = new LinkedHashMap<>();
+        stats.put("processed", count);
+        stats.put("skipped", skipped.get());
+        stats.put("rejected", rejected.get());
+        stats.put("failed", failed.get());
+        stats.put("bytesIn", bytesIn.get());
+        stats.put("bytesOut", bytesOut.get());
+        stats.put("avgProcessingMillis", count > 0 ? TimeUnit.NANOSECONDS.toMillis(processingNanos.get()) / count : 0);
+        stats.put("activeWorkers", (long) workers.getActiveCount());
+        stats.put("queued", (long) workers.getQueue().size());
+        stats.put("availablePixelPermits", (long) pixelBudget.availablePermits());
+        return stats;
+    }
+
+    private Map<String, String> upload(IOSupplier<InputStream> source, String contentType, long size, int maxW,
+            int maxH, IOSupplier<Map<String, String>> original) throws IOException {
+        String type = contentType != null ? contentType.toLowerCase() : null;
+        if (type == null || !type.startsWith("image/")) {
+            // Content-Type do client gửi; file ảnh bị khai sai loại vẫn phải qua bước xóa EXIF
+            type = sniffImageType(source);
+        }
+        if (type == null || PASSTHROUGH_IMAGE_TYPES.contains(type)) {
+            skipped.incrementAndGet();
+            return original.get();
+        }
+        if (!SUPPORTED_TYPES.contains(type)) {
+            throw new BadRequestException("Định dạng ảnh không được hỗ trợ: " + type);
+        }
+
+        EncodedImage encoded = process(source, maxW, maxH);
+
+        try {
+            processed.incrementAndGet();
+            bytesIn.addAndGet(size);
+            bytesOut.addAndGet(Files.size(encoded.path));
+            return cloudService.uploadFile(encoded.path, encoded.contentType);
+        } finally {
+            Files.deleteIfExists(encoded.path);
+        }
+    }
+
+    // Chờ có chỗ trong hàng đợi tối đa queueWaitMillis; hết thời gian thì báo 503 chứ không upload file gốc
+    private EncodedImage process(IOSupplier<InputStream> source, int maxW, int maxH) throws IOException {
+        try {
+            if (!slots.tryAcquire(queueWaitMillis, TimeUnit.MILLISECONDS)) {
+                throw busy();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Bị ngắt khi chờ xử lý ảnh", e);
+        }
+
+        Future<EncodedImage> future = null;
+        try {
+            future = workers.submit(() -> encode(source, maxW, maxH));
+            return future.get();
+        } catch (RejectedExecutionException e) {
+            throw busy();
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new IOException("Bị ngắt khi đang xử lý ảnh", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof BadRequestException badRequest) {
+                throw badRequest;
+            }
+            failed.incrementAndGet();
+            throw new IOException("Lỗi khi xử lý ảnh", e.getCause());
+        } finally {
+            slots.release();
+        }
+    }
+
+    private ServiceUnavailableException busy() {
+        rejected.incrementAndGet();
+        log.warn("Hàng đợi xử lý ảnh đã đầy");
+        return new ServiceUnavailableException("Server đang xử lý nhiều ảnh, vui lòng thử lại sau");
+    }
+
+    private EncodedImage encode(IOSupplier<InputStream> source, int maxW, int maxH) throws IOException {
+        long start = System.nanoTime();
+        try (InputStream input = source.get(); ImageInputStream stream = ImageIO.createImageInputStream(input)) {
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(stream);
+            if (!readers.hasNext()) {
+                throw new BadRequestException("Không nhận dạng được định dạng ảnh");
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(stream, true, false);
+                // Kiểm tra kích thước trước khi decode để tránh ảnh "bom" chiếm hết heap
+                int width = reader.getWidth(0);
+                int height = reader.getHeight(0);
+                if ((long) width * height > maxPixels) {
+                    throw new BadRequestException("Ảnh quá lớn: " + width + "x" + height);
+                }
+                int orientation = readOrientation(reader);
+
+                // Ảnh lớn hơn nhiều so với kích thước đích thì decode bỏ bớt pixel ngay từ đầu
+                int subsampling = subsampling(width, height, maxW, maxH, orientation);
+                long decodedPixels = (long) ceilDiv(width, subsampling) * ceilDiv(height, subsampling);
+                int permits = (int) Math.min(pixelPermits, Math.max(1, ceilDiv(decodedPixels, PIXELS_PER_PERMIT)));
+                acquirePixels(permits);
+                try {
+                    ImageReadParam param = reader.getDefaultReadParam();
+                    param.setSourceSubsampling(subsampling, subsampling, 0, 0);
+                    BufferedImage image;
+                    try {
+                        image = reader.read(0, param);
+                    } catch (IIOException e) {
+                        throw new BadRequestException("Ảnh bị lỗi hoặc không đúng định dạng");
+                    }
+                    return write(resize(image, maxW, maxH, orientation));
+                } finally {
+                    pixelBudget.release(permits);
+                }
+            } finally {
+                reader.dispose();
+            }
+        } finally {
+            processingNanos.addAndGet(System.nanoTime() - start);
+        }
+    }
+
+    private void acquirePixels(int permits) throws IOException {
+        try {
+            pixelBudget.acquire(permits);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Bị ngắt khi chờ bộ nhớ để decode ảnh");
+        }
+    }
+
+    // Hệ số subsampling sao cho ảnh decode vẫn lớn ít nhất gấp đôi kích thước đích, phần còn lại do resize thu nhỏ
+    private int subsampling(int width, int height, int maxW, int maxH, int orientation) {
+        boolean swap = orientation >= 5 && orientation <= 8;
+        int orientedW = swap ? height : width;
+        int orientedH = swap ? width : height;
+        return Math.max(1, Math.min(orientedW / (2 * maxW), orientedH / (2 * maxH)));
+    }
+
+    private static long ceilDiv(long value, long divisor) {
+        return (value + divisor - 1) / divisor;
+    }
+
+    // Nhận dạng JPEG/PNG theo magic bytes khi Content-Type không phải ảnh
+    private String sniffImageType(IOSupplier<InputStream> source) throws IOException {
+        byte[] header = new byte[8];
+        int read;
+        try (InputStream input = source.get()) {
+            // Stream dùng chung (uploadImage(InputStream, ...)) thì trả lại vị trí cũ sau khi đọc header
+            boolean shared = input.markSupported();
+            if (shared) {
+                input.mark(header.length);
+            }
+            read = input.readNBytes(header, 0, header.length);
+            if (shared) {
+                input.reset();
+            }
+        }
+        if (read >= 3 && (header[0] & 0xFF) == 0xFF && (header[1] & 0xFF) == 0xD8 && (header[2] & 0xFF) == 0xFF) {
+            return "image/jpeg";
+        }
+        if (read >= 8 && (header[0] & 0xFF) == 0x89 && header[1] == 'P' && header[2] == 'N' && header[3] == 'G') {
+            return "image/png";
+        }
+        return null;
+    }
+
+    private BufferedImage resize(BufferedImage source, int maxW, int maxH, int orientation) {
+        boolean swap = orientation >= 5 && orientation <= 8;
+        // Giới hạn kích thước áp dụng cho ảnh sau khi đã xoay
+        int orientedW = swap ? source.getHeight() : source.getWidth();
+        int orientedH = swap ? source.getWidth() : source.getHeight();
+        double scale = Math.min(1.0, Math.min((double) maxW / orientedW, (double) maxH / orientedH));
+        int targetW = Math.max(1, (int) Math.round(source.getWidth() * scale));
+        int targetH = Math.max(1, (int) Math.round(source.getHeight() * scale));
+        int type = source.getColorModel().hasAlpha() ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB;
+
+        // Thu nhỏ từng nửa một để ảnh không bị răng cưa khi giảm nhiều lần
+        BufferedImage current = source;
+        int w = source.getWidth();
+        int h = source.getHeight();
+        while (w / 2 >= targetW && h / 2 >= targetH) {
+            w /= 2;
+            h /= 2;
+            current = draw(current, w, h, type, AffineTransform.getScaleInstance(
+                    (double) w / current.getWidth(), (double) h / current.getHeight()));
+        }
+
+        AffineTransform transform = orientationTransform(orientation, targetW, targetH);
+        transform.concatenate(AffineTransform.getScaleInstance((double) targetW / w, (double) targetH / h));
+        return draw(current, swap ? targetH : targetW, swap ? targetW : targetH, type, transform);
+    }
+
+    private BufferedImage draw(BufferedImage image, int width, int height, int type, AffineTransform transform) {
+        BufferedImage output = new BufferedImage(width, height, type);
+        Graphics2D graphics = output.createGraphics();
+        try {
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            if (type == BufferedImage.TYPE_INT_RGB) {
+                graphics.setColor(Color.WHITE);
+                graphics.fillRect(0, 0, width, height);
+            }
+            graphics.drawImage(image, transform, null);
+        } finally {
+            graphics.dispose();
+        }
+        return output;
+    }
+
+    // Biến đổi ảnh w x h theo giá trị EXIF orientation (1..8) về đúng chiều hiển thị
+    private AffineTransform orientationTransform(int orientation, int w, int h) {
+        AffineTransform transform = new AffineTransform();
+        switch (orientation) {
+            case 2 -> {
+                transform.translate(w, 0);
+                transform.scale(-1, 1);
+            }
+            case 3 -> {
+                transform.translate(w, h);
+                transform.rotate(Math.PI);
+            }
+            case 4 -> {
+                transform.translate(0, h);
+                transform.scale(1, -1);
+            }
+            case 5 -> transform.setTransform(0, 1, 1, 0, 0, 0);
+            case 6 -> {
+                transform.translate(h, 0);
+                transform.rotate(Math.PI / 2);
+            }
+            case 7 -> transform.setTransform(0, -1, -1, 0, h, w);
+            case 8 -> {
+                transform.translate(0, w);
+                transform.rotate(-Math.PI / 2);
+            }
+            default -> {
+            }
+        }
+        return transform;
+    }
+
+    private EncodedImage write(BufferedImage image) throws IOException {
+        boolean png = image.getColorModel().hasAlpha();
+        Path path = Files.createTempFile("image-", png ? ".png" : ".jpg");
+        ImageWriter writer = ImageIO.getImageWritersByFormatName(png ? "png" : "jpeg").next();
+        try (ImageOutputStream output = ImageIO.createImageOutputStream(path.toFile())) {
+            writer.setOutput(output);
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            if (!png) {
+                param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+                param.setCompressionQuality(quality);
+            }
+            // Không truyền metadata của ảnh gốc nên EXIF bị loại bỏ
+            writer.write(null, new IIOImage(image, null, null), param);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(path);
+            throw e;
+        } finally {
+            writer.dispose();
+        }
+        return new EncodedImage(path, png ? "image/png" : "image/jpeg");
+    }
+
+    private int readOrientation(ImageReader reader) {
+        try {
+            IIOMetadata metadata = reader.getImageMetadata(0);
+            if (metadata == null || !JPEG_METADATA_FORMAT.equals(metadata.getNativeMetadataFormatName())) {
+                return 1;
+            }
+            IIOMetadataNode root = (IIOMetadataNode) metadata.getAsTree(JPEG_METADATA_FORMAT);
+            NodeList markers = root.getElementsByTagName("unknown");
+            for (int i = 0; i < markers.getLength(); i++) {
+                IIOMetadataNode marker = (IIOMetadataNode) markers.item(i);
+                if (Integer.toString(EXIF_MARKER).equals(marker.getAttribute("MarkerTag"))
+                        && marker.getUserObject() instanceof byte[] data) {
+                    int orientation = parseExifOrientation(data);
+                    if (orientation > 0) {
+                        return orientation;
+                    }
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            log.debug("Không đọc được EXIF orientation", e);
+        }
+        return 1;
+    }
+
+    // Đọc tag Orientation trong IFD0 của segment APP1 ("Exif\0\0" + TIFF header)
+    private int parseExifOrientation(byte[] data) {
+        if (data.length < 14 || data[0] != 'E' || data[1] != 'x' || data[2] != 'i' || data[3] != 'f') {
+            return 0;
+        }
+        int tiff = 6;
+        boolean littleEndian = data[tiff] == 'I' && data[tiff + 1] == 'I';
+        int ifd = tiff + readInt(data, tiff + 4, littleEndian);
+        if (ifd < tiff || ifd + 2 > data.length) {
+            return 0;
+        }
+        int entries = readShort(data, ifd, littleEndian);
+        for (int i = 0; i < entries; i++) {
+            int entry = ifd + 2 + i * 12;
+            if (entry + 12 > data.length) {
+                break;
+            }
+            if (readShort(data, entry, littleEndian) == EXIF_ORIENTATION_TAG) {
+                int orientation = readShort(data, entry + 8, littleEndian);
+                return orientation >= 1 && orientation <= 8 ? orientation : 0;
+            }
+        }
+        return 0;
+    }
+
+    private int readShort(byte[] data, int offset, boolean littleEndian) {
+        int b0 = data[offset] & 0xFF;
+        int b1 = data[offset + 1] & 0xFF;
+        return littleEndian ? (b1 << 8) | b0 : (b0 << 8) | b1;
+    }
+
+    private int readInt(byte[] data, int offset, boolean littleEndian) {
+        int high = readShort(data, offset + (littleEndian ? 2 : 0), littleEndian);
+        int low = readShort(data, offset + (littleEndian ? 0 : 2), littleEndian);
+        return (high << 16) | low;
+    }
+}
@@ -0,0 +1,103 @@
+package com.dran.web_social.services.impl;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import com.dran.web_social.dto.projection.LikesCountEntry;
+import com.dran.web_social.events.LikeCountChangedEvent;
+import com.dran.web_social.events.LikeCountChangedEvent.Target;
+import com.dran.web_social.redis.LikeCounterService;
+import com.dran.web_social.repositories.PostRepository;
+import com.dran.web_social.services.LikeBroadcastService;
+import com.dran.web_social.services.WebSocketService;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Gửi số like qua /topic/post/{postId}/likes theo từng cửa sổ thời gian: mỗi
+ * lượt like chỉ đánh dấu bài viết, hết cửa sổ thì mỗi bài viết được đánh dấu
+ * nhận đúng một message với số like mới nhất. Bài viết nhận 1000 like/giây
+ * với cửa sổ 250ms chỉ gửi 4 message/giây.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class LikeBroadcastServiceImpl implements LikeBroadcastService {
+    private static final int QUERY_CHUNK_SIZE = 500;
+
+    private final PostRepository postRepository;
+    private final LikeCounterService likeCounterService;
+    private final WebSocketService webSocketService;
+
+    private final Set<Long> dirtyPostIds = ConcurrentHashMap.newKeySet();
+    private final AtomicLong received = new AtomicLong();
+    private final AtomicLong sent = new AtomicLong();
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onLikeCountChanged(LikeCountChangedEvent event) {
+        if (event.getTarget() == Target.POST) {
+            received.incrementAndGet();
+            dirtyPostIds.add(event.getTargetId());
+        }
+    }
+
+    @Override
+    @Scheduled(fixedRateString = "${app.likes.broadcast.window-ms:250}")
+    public int broadcastPending() {
+        if (dirtyPostIds.isEmpty()) {
+            return 0;
+        }
+        // Lấy id ra trước khi đọc số like: lượt like đến sau đó sẽ được gửi ở cửa sổ kế tiếp
+        List<Long> postIds = new ArrayList<>();
+        for (Long postId : dirtyPostIds) {
+            if (dirtyPostIds.remove(postId)) {
+                postIds.add(postId);
+            }
+        }
+
+        int count = 0;
+        for (int from = 0; from < postIds.size(); from += QUERY_CHUNK_SIZE) {
+            List<Long> chunk = postIds.subList(from, Math.min(from + QUERY_CHUNK_SIZE, postIds.size()));
+            try {
+                count += broadcast(chunk);
+            } catch (DataAccessException e) {
+                // Đánh dấu lại để gửi ở cửa sổ kế tiếp, không thì client giữ số like cũ tới lượt like sau
+                dirtyPostIds.addAll(chunk);
+                log.warn("Không gửi được số like cho {} bài viết, sẽ thử lại ở cửa sổ sau", chunk.size(), e);
+            }
+        }
+        return count;
+    }
+
+    @Override
+    public Map<String, Long> getStats() {
+        long sentMessages = sent.get();
+        return Map.of(
+                "received", received.get(),
+                "sent", sentMessages,
+                "suppressed", Math.max(0, received.get() - sentMessages),
+                "pending", (long) dirtyPostIds.size());
+    }
+
+    private int broadcast(List<Long> postIds) {
+        Map<Long, Long> pending = likeCounterService.pendingDeltas(Target.POST, postIds);
+        List<LikesCountEntry> counts = postRepository.findLikesCountsByIdIn(postIds);
+        for (LikesCountEntry entry : counts) {
+            long likesCount = Math.max(0, entry.getLikesCount() + pending.getOrDefault(entry.getId(), 0L));
+            webSocketService.notifyLikeCountChanged(entry.getId(), (int) likesCount);
+        }
+        sent.addAndGet(counts.size());
+        return counts.size();
+    }
+}
@@ -1,12 +1,18 @@
 package com.dran.web_social.services.impl;
 
+import com.dran.web_social.custom.exception.BadRequestException;
 import com.dran.web_social.custom.exception.ResourceNotFoundException;
+import com.dran.web_social.dto.projection.LikesCountEntry;
+import com.dran.web_social.dto.request.LikeStatusRequest;
 import com.dran.web_social.dto.response.LikeResponse;
+import com.dran.web_social.dto.response.LikeStatusResponse;
+import com.dran.web_social.events.LikeCountChangedEvent;
+import com.dran.web_social.events.LikeCountChangedEvent.Target;
 import com.dran.web_social.models.CommentPost;
 import com.dran.web_social.models.LikeComment;
-import com.dran.web_social.models.LikePost;
-import com.dran.web_social.models.Post;
 import com.dran.web_social.models.User;
+import com.dran.web_social.redis.LikeCounterService;
+import com.dran.web_social.redis.LikeMembershipIndex;
 import com.dran.web_social.repositories.CommentRepository;
 import com.dran.web_social.repositories.LikeCommentRepository;
 import com.dran.web_social.repositories.LikePostRepository;
@@ -17,10 +23,18 @@ import com.dran.web_social.services.LikeService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
 
 @Service
 @RequiredArgsConstructor
@@ -32,47 +46,67 @@ public class LikeServiceImpl implements LikeService {
     private final PostRepository postRepository;
     private final CommentRepository commentRepository;
     private final UserRepository userRepository;
+    private final LikeCounterService likeCounterService;
+    private final LikeMembershipIndex likeMembershipIndex;
+    private final ApplicationEventPublisher eventPublisher;
 
+    @Value("${app.likes.status.max-ids:500}")
+    private int maxStatusIds;
+
+    // Giữ cho client cũ: chuyển sang likePost/unlikePost theo trạng thái hiện tại
     @Override
     @Transactional
     public LikeResponse toggleLikePost(String username, Long postId) {
-
-        // Check đủ thể loại
-        User user = userRepository.findByUserName(username)
+        Long userId = userRepository.findIdByUserName(username)
                 .orElseThrow(() -> new ResourceNotFoundException("Không tìm thấy người dùng: " + username));
 
-        Post post = postRepository.findById(postId)
-                .orElseThrow(() -> new ResourceNotFoundException("Không tìm thấy bài viết với ID: " + postId));
+        // Quyết định theo dòng trong database chứ không theo index trên Redis (có thể cũ):
+        // xóa được dòng like là unlike, không có gì để xóa thì like
+        if (likePostRepository.deleteLike(postId, userId) > 0) {
+            return likeChanged(userId, postId, false);
+        }
+        return likePost(userId, postId);
+    }
 
-        // Kiểm tra xem người dùng đã like bài viết này chưa
-        Optional<LikePost> existingLike = likePostRepository.findByPostIdAndUserId(postId, user.getId());
+    @Override
+    @Transactional
+    public LikeResponse likePost(Long userId, Long postId) {
+        // Một câu INSERT IGNORE trên unique key (post_id, user_id): 1 dòng là like mới; 0 là đã có dòng,
+        // dòng đó có thể là is_liked = false từ dữ liệu cũ nên bật lại nó
+        if (likePostRepository.insertLikeIfAbsent(postId, userId) > 0
+                || likePostRepository.reviveLike(postId, userId) > 0) {
+            return likeChanged(userId, postId, true);
+        }
+        // INSERT IGNORE cũng bỏ qua lỗi khóa ngoại nên phải kiểm tra bài viết còn tồn tại không
+        return likeUnchanged(postId, true);
+    }
 
-        boolean currentLiked;
-        if (existingLike.isPresent()) {
-            // Unlike
-            LikePost likePost = existingLike.get();
-            likePost.setLiked(!likePost.isLiked());
-            likePostRepository.save(likePost);
-            currentLiked = likePost.isLiked();
-        } else {
-            // Like
-            LikePost likePost = LikePost.builder()
-                    .post(post)
-                    .user(user)
-                    .isLiked(true)
-                    .build();
-            likePostRepository.save(likePost);
-            currentLiked = true;
+    @Override
+    @Transactional
+    public LikeResponse unlikePost(Long userId, Long postId) {
+        if (likePostRepository.deleteLike(postId, userId) > 0) {
+            return likeChanged(userId, postId, false);
         }
+        return likeUnchanged(postId, false);
+    }
 
-        // Đồng bộ likesCount với database thực tế
-        int actualLikesCount = likePostRepository.countByPostIdAndLikedTrue(postId);
-        post.setLikesCount(actualLikesCount);
-        postRepository.save(post);
+    // likesCount không cập nhật ngay trên dòng posts, delta được cộng vào counter sau commit và flush theo lô
+    private LikeResponse likeChanged(Long userId, Long postId, boolean liked) {
+        int delta = liked ? 1 : -1;
+        eventPublisher.publishEvent(new LikeCountChangedEvent(Target.POST, postId, userId, delta));
+        return LikeResponse.builder()
+                .liked(liked)
+                .likesCount((int) Math.max(0, getPostLikesCount(postId) + delta))
+                .build();
+    }
 
+    private LikeResponse likeUnchanged(Long postId, boolean liked) {
+        if (!postRepository.existsById(postId)) {
+            throw new ResourceNotFoundException("Không tìm thấy bài viết với ID: " + postId);
+        }
         return LikeResponse.builder()
-                .liked(currentLiked)
-                .likesCount(actualLikesCount)
+                .liked(liked)
+                .likesCount(getPostLikesCount(postId))
                 .build();
     }
 
@@ -105,34 +139,90 @@ public class LikeServiceImpl implements LikeService {
             currentLiked = true;
         }
 
-        // Đồng bộ likesCount với database thực tế
-        int actualLikesCount = likeCommentRepository.countByCommentId(commentId);
-        comment.setLikesCount(actualLikesCount);
-        commentRepository.save(comment);
+        int delta = currentLiked ? 1 : -1;
+        eventPublisher.publishEvent(new LikeCountChangedEvent(Target.COMMENT, commentId, user.getId(), delta));
+        int likesCount = (int) Math.max(0, getCommentLikesCount(commentId) + delta);
 
         return LikeResponse.builder()
                 .liked(currentLiked)
-                .likesCount(actualLikesCount)
+                .likesCount(likesCount)
                 .build();
     }
 
     @Override
     public boolean isPostLikedByUser(Long postId, Long userId) {
-        return likePostRepository.findIsLikedByPostIdAndUserId(postId, userId).orElse(false);
+        return likeMembershipIndex.isLiked(Target.POST, userId, postId);
     }
 
     @Override
     public boolean isCommentLikedByUser(Long commentId, Long userId) {
-        return likeCommentRepository.findIsLikedByCommentIdAndUserId(commentId, userId).orElse(false);
+        return likeMembershipIndex.isLiked(Target.COMMENT, userId, commentId);
+    }
+
+    @Override
+    public Set<Long> getLikedPostIds(Long userId, Collection<Long> postIds) {
+        if (userId == null || postIds == null || postIds.isEmpty()) {
+            return Set.of();
+        }
+        return likeMembershipIndex.likedIds(Target.POST, userId, postIds);
+    }
+
+    @Override
+    public Set<Long> getLikedCommentIds(Long userId, Collection<Long> commentIds) {
+        if (userId == null || commentIds == null || commentIds.isEmpty()) {
+            return Set.of();
+        }
+        return likeMembershipIndex.likedIds(Target.COMMENT, userId, commentIds);
     }
 
     @Override
     public int getPostLikesCount(Long postId) {
-        return likePostRepository.countByPostIdAndLikedTrue(postId);
+        long pending = likeCounterService.pendingDelta(Target.POST, postId);
+        return (int) Math.max(0, postRepository.findLikesCountById(postId) + pending);
     }
 
     @Override
     public int getCommentLikesCount(Long commentId) {
-        return likeCommentRepository.countByCommentId(commentId);
+        long pending = likeCounterService.pendingDelta(Target.COMMENT, commentId);
+        return (int) Math.max(0, commentRepository.findLikesCountById(commentId) + pending);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public LikeStatusResponse getLikeStatuses(Long userId, LikeStatusRequest request) {
+        List<Long> postIds = distinct(request.getPostIds());
+        List<Long> commentIds = distinct(request.getCommentIds());
+        if (postIds.size() + commentIds.size() > maxStatusIds) {
+            throw new BadRequestException("Chỉ được hỏi tối đa " + maxStatusIds + " id mỗi lần");
+        }
+
+        // Mỗi loại một query IN cho số like, trạng thái like lấy từ index trên Redis
+        return LikeStatusResponse.builder()
+                .posts(toStatuses(Target.POST, userId, postIds,
+                        postIds.isEmpty() ? List.of() : postRepository.findLikesCountsByIdIn(postIds)))
+                .comments(toStatuses(Target.COMMENT, userId, commentIds,
+                        commentIds.isEmpty() ? List.of() : commentRepository.findLikesCountsByIdIn(commentIds)))
+                .build();
+    }
+
+    private Map<Long, LikeResponse> toStatuses(Target target, Long userId, List<Long> ids,
+            List<LikesCountEntry> counts) {
+        Map<Long, LikeResponse> statuses = new LinkedHashMap<>();
+        if (counts.isEmpty()) {
+            return statuses;
+        }
+        Set<Long> liked = likeMembershipIndex.likedIds(target, userId, ids);
+        Map<Long, Long> pending = likeCounterService.pendingDeltas(target, ids);
+        for (LikesCountEntry entry : counts) {
+            statuses.put(entry.getId(), LikeResponse.builder()
+                    .liked(liked.contains(entry.getId()))
+                    .likesCount((int) Math.max(0, entry.getLikesCount() + pending.getOrDefault(entry.getId(), 0L)))
+                    .build());
+        }
+        return statuses;
+    }
+
+    private List<Long> distinct(List<Long> ids) {
+        return ids == null ? List.of() : ids.stream().filter(Objects::nonNull).distinct().toList();
     }
 }
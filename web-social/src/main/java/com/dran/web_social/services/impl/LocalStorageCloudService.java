@@ -0,0 +1,165 @@
+package com.dran.web_social.services.impl;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import com.dran.web_social.services.CloudService;
+import com.dran.web_social.utils.HashUtil;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Lưu media trên đĩa thay cho Cloudinary (bật bằng app.storage.type=local).
+ * publicId là SHA-256 của nội dung cộng một salt ngẫu nhiên cho mỗi lần upload
+ * (hash-salt.ext): hai lần upload cùng nội dung (ví dụ avatar và ảnh bài viết)
+ * là hai file riêng, nên xóa một asset không làm mất file của chỗ khác. Dedup
+ * nội dung do MediaService đảm nhận qua content_hash của bảng media. File không
+ * bao giờ bị ghi đè nên publicId dùng luôn làm ETag. File được chia thư mục
+ * theo 4 ký tự đầu của hash (ab/cd/abcd...) để mỗi thư mục không có quá nhiều
+ * file. File được phục vụ qua /api/v1/media/{publicId}.
+ */
+@Service
+@ConditionalOnProperty(name = "app.storage.type", havingValue = "local")
+@Slf4j
+public class LocalStorageCloudService implements CloudService {
+    private static final Pattern PUBLIC_ID = Pattern.compile("([0-9a-f]{64})(?:-[0-9a-f]{16})?\\.([a-z0-9]{1,10})");
+    private static final SecureRandom RANDOM = new SecureRandom();
+    private static final Pattern EXTENSION = Pattern.compile("[a-z0-9]{1,10}");
+
+    @Value("${app.storage.local.root-dir:${user.home}/web-social-media}")
+    private String rootDir;
+
+    @Value("${app.storage.local.base-url:/api/v1/media}")
+    private String baseUrl;
+
+    private Path root;
+
+    @PostConstruct
+    public void init() throws IOException {
+        root = Path.of(rootDir).toAbsolutePath();
+        Files.createDirectories(root);
+    }
+
+    @Override
+    public Map<String, String> uploadFile(MultipartFile file) throws IOException {
+        try (InputStream input = file.getInputStream()) {
+            return store(input, file.getContentType());
+        }
+    }
+
+    @Override
+    public Map<String, String> uploadFile(InputStream input, String contentType) throws IOException {
+        return store(input, contentType);
+    }
+
+    @Override
+    public Map<String, String> uploadFile(Path path, String contentType) throws IOException {
+        try (InputStream input = Files.newInputStream(path)) {
+            return store(input, contentType);
+        }
+    }
+
+    @Override
+    public void deleteFile(String publicId) {
+        resolvePath(publicId).ifPresent(path -> {
+            try {
+                Files.deleteIfExists(path);
+            } catch (IOException e) {
+                log.warn("Không thể xóa file {}", path, e);
+            }
+        });
+    }
+
+    @Override
+    public Set<String> deleteFiles(List<String> publicIds, String mediaType) {
+        Set<String> deleted = new HashSet<>();
+        for (String publicId : publicIds) {
+            Optional<Path> path = resolvePath(publicId);
+            try {
+                if (path.isPresent()) {
+                    Files.deleteIfExists(path.get());
+                }
+                deleted.add(publicId);
+            } catch (IOException e) {
+                log.warn("Không thể xóa file {}", path.get(), e);
+            }
+        }
+        return deleted;
+    }
+
+    // File của publicId nếu publicId hợp lệ và file còn tồn tại
+    public Optional<Path> resolve(String publicId) {
+        return resolvePath(publicId).filter(Files::isRegularFile);
+    }
+
+    // Ghi vào file tạm cùng thư mục gốc rồi move để người đọc không thấy file ghi dở
+    private Map<String, String> store(InputStream input, String contentType) throws IOException {
+        Path temp = Files.createTempFile(root, "upload-", ".tmp");
+        try {
+            MessageDigest digest = HashUtil.newSha256();
+            Files.copy(new DigestInputStream(input, digest), temp, StandardCopyOption.REPLACE_EXISTING);
+            String hash = HashUtil.hex(digest);
+            // Salt riêng cho mỗi lần upload để publicId không bị chia sẻ giữa các nơi dùng
+            String publicId = hash + "-" + salt() + "." + extension(contentType);
+            Path target = shardPath(hash, publicId);
+            Files.createDirectories(target.getParent());
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            return Map.of(
+                    "url", baseUrl + "/" + publicId,
+                    "public_id", publicId);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    private Optional<Path> resolvePath(String publicId) {
+        if (publicId == null) {
+            return Optional.empty();
+        }
+        var matcher = PUBLIC_ID.matcher(publicId);
+        if (!matcher.matches()) {
+            return Optional.empty();
+        }
+        return Optional.of(shardPath(matcher.group(1), publicId));
+    }
+
+    private String salt() {
+        byte[] bytes = new byte[8];
+        RANDOM.nextBytes(bytes);
+        return HexFormat.of().formatHex(bytes);
+    }
+
+    private Path shardPath(String hash, String publicId) {
+        return root.resolve(hash.substring(0, 2)).resolve(hash.substring(2, 4)).resolve(publicId);
+    }
+
+    private String extension(String contentType) {
+        if (contentType == null || !contentType.contains("/")) {
+            return "bin";
+        }
+        String subtype = contentType.substring(contentType.indexOf('/') + 1).split(";")[0].trim().toLowerCase();
+        if ("jpeg".equals(subtype)) {
+            return "jpg";
+        }
+        return EXTENSION.matcher(subtype).matches() ? subtype : "bin";
+    }
+}
@@ -0,0 +1,165 @@
+package com.dran.web_social.services.impl;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.dran.web_social.models.MediaDeletionOutbox;
+import com.dran.web_social.models.MediaDeletionOutbox.OutboxStatus;
+import com.dran.web_social.repositories.MediaDeletionOutboxRepository;
+import com.dran.web_social.repositories.MediaRepository;
+import com.dran.web_social.services.CloudService;
+import com.dran.web_social.services.MediaDeletionService;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Dispatcher của media_deletion_outbox: nhận một lô bản ghi đến hạn, bỏ qua
+ * asset vẫn còn media tham chiếu và xóa phần còn lại trên storage bằng một
+ * request cho mỗi loại media. Lỗi thì thử lại với backoff tăng dần, quá số lần
+ * cho phép thì chuyển DEAD.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class MediaDeletionServiceImpl implements MediaDeletionService {
+    private static final int MAX_ERROR_LENGTH = 1000;
+
+    private final MediaDeletionOutboxRepository outboxRepository;
+    private final MediaRepository mediaRepository;
+    private final CloudService cloudService;
+    private final TransactionTemplate transactionTemplate;
+
+    private final AtomicLong deleted = new AtomicLong();
+    private final AtomicLong skipped = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+
+    // Cloudinary cho phép tối đa 100 publicId trong một request xóa
+    @Value("${app.media.deletion.batch-size:100}")
+    private int batchSize;
+
+    @Value("${app.media.deletion.max-attempts:8}")
+    private int maxAttempts;
+
+    @Value("${app.media.deletion.backoff-seconds:30}")
+    private long backoffSeconds;
+
+    @Value("${app.media.deletion.lease-seconds:300}")
+    private long leaseSeconds;
+
+    @Override
+    @Scheduled(fixedDelayString = "${app.media.deletion.dispatch-interval-ms:10000}")
+    public int dispatch() {
+        List<MediaDeletionOutbox> claimed = claimBatch();
+        if (claimed.isEmpty()) {
+            return 0;
+        }
+
+        List<MediaDeletionOutbox> deletable = new ArrayList<>();
+        for (MediaDeletionOutbox entry : claimed) {
+            if (Boolean.TRUE.equals(transactionTemplate.execute(status -> confirmUnreferenced(entry.getId())))) {
+                entry.setConfirmed(true);
+                deletable.add(entry);
+            } else {
+                skipped.incrementAndGet();
+            }
+        }
+
+        Map<String, List<MediaDeletionOutbox>> byType = deletable.stream()
+                .collect(Collectors.groupingBy(entry -> String.valueOf(entry.getMediaType())));
+        byType.values().forEach(this::deleteGroup);
+        return claimed.size();
+    }
+
+    @Override
+    public int requeueDeadLetters() {
+        int requeued = outboxRepository.requeueDead();
+        log.info("Requeued {} dead media deletions", requeued);
+        return requeued;
+    }
+
+    @Override
+    public Map<String, Long> getStats() {
+        return Map.of(
+                "pending", outboxRepository.countByStatus(OutboxStatus.PENDING),
+                "dead", outboxRepository.countByStatus(OutboxStatus.DEAD),
+                "deleted", deleted.get(),
+                "skipped", skipped.get(),
+                "failures", failures.get());
+    }
+
+    private List<MediaDeletionOutbox> claimBatch() {
+        Date now = new Date();
+        Date leaseUntil = new Date(now.getTime() + TimeUnit.SECONDS.toMillis(leaseSeconds));
+        List<Long> claimedIds = outboxRepository.findDueIds(now, PageRequest.of(0, batchSize)).stream()
+                .filter(id -> outboxRepository.claim(id, now, leaseUntil) > 0)
+                .toList();
+        return claimedIds.isEmpty() ? List.of() : outboxRepository.findAllById(claimedIds);
+    }
+
+    // Kiểm tra tham chiếu khi đang khóa bản ghi outbox (reserveAssets phía dùng lại asset cũng khóa theo
+    // public_id), rồi đặt confirmed trong cùng transaction để sau đó không media mới nào gắn được asset này
+    private boolean confirmUnreferenced(Long outboxId) {
+        MediaDeletionOutbox entry = outboxRepository.findByIdForUpdate(outboxId).orElse(null);
+        if (entry == null) {
+            return false;
+        }
+        if (!entry.isConfirmed() && mediaRepository.countByPublicId(entry.getPublicId()) > 0) {
+            // Asset đã được media khác dùng lại thì chỉ bỏ yêu cầu xóa
+            outboxRepository.delete(entry);
+            return false;
+        }
+        entry.setConfirmed(true);
+        return true;
+    }
+
+    private void deleteGroup(List<MediaDeletionOutbox> entries) {
+        List<String> publicIds = entries.stream().map(MediaDeletionOutbox::getPublicId).distinct().toList();
+        Set<String> done;
+        try {
+            done = cloudService.deleteFiles(publicIds, entries.get(0).getMediaType());
+        } catch (IOException | RuntimeException e) {
+            log.warn("Xóa {} asset trên storage thất bại", publicIds.size(), e);
+            entries.forEach(entry -> handleFailure(entry, e.toString()));
+            return;
+        }
+
+        for (MediaDeletionOutbox entry : entries) {
+            if (done.contains(entry.getPublicId())) {
+                outboxRepository.delete(entry);
+                deleted.incrementAndGet();
+            } else {
+                handleFailure(entry, "Storage không xác nhận đã xóa");
+            }
+        }
+    }
+
+    private void handleFailure(MediaDeletionOutbox entry, String error) {
+        failures.incrementAndGet();
+        int attempts = entry.getAttempts() + 1;
+        entry.setAttempts(attempts);
+        entry.setLastError(error.length() > MAX_ERROR_LENGTH ? error.substring(0, MAX_ERROR_LENGTH) : error);
+        if (attempts < maxAttempts) {
+            long delayMillis = TimeUnit.SECONDS.toMillis(backoffSeconds) << (attempts - 1);
+            entry.setNextAttemptAt(new Date(System.currentTimeMillis() + delayMillis));
+        } else {
+            log.error("Xóa asset {} thất bại sau {} lần, chuyển sang DEAD", entry.getPublicId(), attempts);
+            entry.setStatus(OutboxStatus.DEAD);
+            entry.setNextAttemptAt(null);
+        }
+        outboxRepository.save(entry);
+    }
+}
@@ -0,0 +1,269 @@
+package com.dran.web_social.services.impl;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.multipart.MultipartFile;
+
+import com.dran.web_social.dto.response.MediaResponse;
+import com.dran.web_social.events.MediaStagedEvent;
+import com.dran.web_social.events.PostChangedEvent;
+import com.dran.web_social.models.Media;
+import com.dran.web_social.models.Media.MediaStatus;
+import com.dran.web_social.models.Post;
+import com.dran.web_social.repositories.MediaRepository;
+import com.dran.web_social.services.MediaProcessingService;
+import com.dran.web_social.services.MediaService;
+import com.dran.web_social.services.WebSocketService;
+import com.dran.web_social.utils.HashUtil;
+import com.dran.web_social.utils.MediaTypeUtil;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Upload media bất đồng bộ: file được lưu tạm trên đĩa cùng bản ghi PENDING,
+ * worker upload lên storage rồi chuyển sang READY. Lỗi thì thử lại với
+ * backoff tăng dần, quá số lần cho phép thì chuyển FAILED. Mỗi lần xử lý phải
+ * "nhận" media bằng UPDATE có điều kiện nên một media không bị upload hai lần,
+ * kể cả khi có nhiều instance; lease được gia hạn định kỳ trong lúc upload để
+ * upload chậm không bị worker khác nhận lại. File tạm nằm trong thư mục cấu
+ * hình (không dùng thư mục tạm của hệ điều hành vì bị xóa khi khởi động lại);
+ * media mất file tạm được chuyển FAILED. Kết quả được gửi cho client qua
+ * /topic/post/{postId}/media.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class MediaProcessingServiceImpl implements MediaProcessingService {
+    private static final int RETRY_BATCH_SIZE = 100;
+
+    private final MediaRepository mediaRepository;
+    private final MediaService mediaService;
+    private final WebSocketService webSocketService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TaskScheduler taskScheduler;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${app.media.async.staging-dir:${user.home}/web-social-staging}")
+    private String stagingDir;
+
+    @Value("${app.media.async.workers:4}")
+    private int workerCount;
+
+    @Value("${app.media.async.max-attempts:5}")
+    private int maxAttempts;
+
+    @Value("${app.media.async.backoff-seconds:10}")
+    private long backoffSeconds;
+
+    // Thời gian một worker giữ media; quá thời gian này media có thể được worker khác nhận lại
+    @Value("${app.media.async.lease-seconds:300}")
+    private long leaseSeconds;
+
+    private ExecutorService workers;
+
+    @PostConstruct
+    public void init() throws IOException {
+        Files.createDirectories(Path.of(stagingDir));
+        workers = Executors.newFixedThreadPool(workerCount);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        workers.shutdownNow();
+    }
+
+    @Override
+    public List<Media> stage(List<MultipartFile> files, Post post) {
+        List<Media> staged = new ArrayList<>();
+        try {
+            for (MultipartFile file : files) {
+                Path path = Files.createTempFile(Path.of(stagingDir), "media-", ".tmp");
+                String contentType = MediaTypeUtil.contentTypeOrDefault(file.getContentType());
+                staged.add(Media.builder()
+                        .type(MediaTypeUtil.mediaType(contentType))
+                        .contentType(contentType)
+                        .stagingPath(path.toString())
+                        .status(MediaStatus.PENDING)
+                        .attempts(0)
+                        .post(post)
+                        .build());
+                // Tính hash trong lúc ghi file tạm để worker kiểm tra trùng mà không phải đọc lại file
+                MessageDigest digest = HashUtil.newSha256();
+                try (InputStream input = new DigestInputStream(file.getInputStream(), digest)) {
+                    Files.copy(input, path, StandardCopyOption.REPLACE_EXISTING);
+                }
+                staged.get(staged.size() - 1).setContentHash(HashUtil.hex(digest));
+            }
+            return staged;
+        } catch (IOException e) {
+            discardStaged(staged);
+            throw new RuntimeException("Lỗi khi lưu file tạm", e);
+        }
+    }
+
+    @Override
+    public void discardStaged(List<Media> media) {
+        media.forEach(m -> deleteStagingFile(m.getStagingPath()));
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void onMediaStaged(MediaStagedEvent event) {
+        event.getMediaIds().forEach(this::submit);
+    }
+
+    // Nhận lại media cần thử lại và media bị bỏ dở (ví dụ server restart giữa chừng)
+    @Scheduled(fixedDelayString = "${app.media.async.retry-interval-ms:30000}")
+    public void retryPending() {
+        mediaRepository.findRetryablePendingIds(new Date(), PageRequest.of(0, RETRY_BATCH_SIZE))
+                .forEach(this::submit);
+    }
+
+    private void submit(Long mediaId) {
+        workers.submit(() -> {
+            try {
+                process(mediaId);
+            } catch (RuntimeException e) {
+                log.error("Lỗi khi xử lý media {}", mediaId, e);
+            }
+        });
+    }
+
+    private void process(Long mediaId) {
+        Date now = new Date();
+        Date leaseUntil = new Date(now.getTime() + TimeUnit.SECONDS.toMillis(leaseSeconds));
+        if (mediaRepository.claimPending(mediaId, now, leaseUntil) == 0) {
+            return;
+        }
+        Media media = mediaRepository.findById(mediaId).orElse(null);
+        if (media == null) {
+            return;
+        }
+        Long postId = media.getPost().getId();
+
+        // File tạm bị mất (ổ đĩa bị dọn, chuyển máy) thì không bao giờ upload được, không cần thử lại
+        if (media.getStagingPath() == null || !Files.isRegularFile(Path.of(media.getStagingPath()))) {
+            log.error("Không tìm thấy file tạm {} của media {}", media.getStagingPath(), mediaId);
+            markFailed(media, postId, media.getAttempts());
+            return;
+        }
+
+        Map<String, String> result;
+        Duration renewInterval = Duration.ofSeconds(Math.max(1, leaseSeconds / 3));
+        ScheduledFuture<?> renewal = taskScheduler.scheduleAtFixedRate(() -> renewLease(mediaId),
+                Instant.now().plus(renewInterval), renewInterval);
+        try {
+            result = mediaService.uploadDeduplicated(Path.of(media.getStagingPath()), media.getContentType(),
+                    media.getContentHash());
+        } catch (Exception e) {
+            handleFailure(media, postId, e);
+            return;
+        } finally {
+            renewal.cancel(false);
+        }
+
+        // Asset dùng lại bị xác nhận xóa trong lúc upload thì thử lại, lần sau sẽ upload bản mới
+        Map<String, String> asset = result;
+        boolean ready;
+        try {
+            ready = Boolean.TRUE.equals(transactionTemplate.execute(status -> {
+                mediaService.reserveAssets(List.of(asset.get("public_id")));
+                return mediaRepository.markReady(mediaId, asset.get("url"), asset.get("public_id"),
+                        asset.get("content_hash")) > 0;
+            }));
+        } catch (RuntimeException e) {
+            handleFailure(media, postId, e);
+            return;
+        }
+
+        // Bài viết đã bị xóa trong lúc upload thì dọn file vừa upload (nếu không media nào khác dùng)
+        if (!ready) {
+            mediaService.scheduleAssetDeletion(result.get("public_id"), media.getType());
+            deleteStagingFile(media.getStagingPath());
+            return;
+        }
+        deleteStagingFile(media.getStagingPath());
+        notifyStatus(postId, MediaResponse.builder()
+                .id(mediaId)
+                .url(result.get("url"))
+                .type(media.getType())
+                .status(MediaStatus.READY.name())
+                .build());
+    }
+
+    private void handleFailure(Media media, Long postId, Exception e) {
+        int attempts = media.getAttempts() + 1;
+        if (attempts < maxAttempts) {
+            long delayMillis = TimeUnit.SECONDS.toMillis(backoffSeconds) << (attempts - 1);
+            mediaRepository.scheduleRetry(media.getId(), attempts, new Date(System.currentTimeMillis() + delayMillis));
+            log.warn("Upload media {} thất bại lần {}, thử lại sau {} ms", media.getId(), attempts, delayMillis, e);
+            return;
+        }
+
+        log.error("Upload media {} thất bại sau {} lần", media.getId(), attempts, e);
+        markFailed(media, postId, attempts);
+    }
+
+    private void markFailed(Media media, Long postId, int attempts) {
+        if (mediaRepository.markFailed(media.getId(), attempts) > 0) {
+            deleteStagingFile(media.getStagingPath());
+            notifyStatus(postId, MediaResponse.builder()
+                    .id(media.getId())
+                    .type(media.getType())
+                    .status(MediaStatus.FAILED.name())
+                    .build());
+        }
+    }
+
+    private void renewLease(Long mediaId) {
+        try {
+            Date leaseUntil = new Date(System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(leaseSeconds));
+            mediaRepository.renewLease(mediaId, leaseUntil);
+        } catch (RuntimeException e) {
+            log.warn("Không thể gia hạn lease của media {}", mediaId, e);
+        }
+    }
+
+    private void notifyStatus(Long postId, MediaResponse media) {
+        eventPublisher.publishEvent(new PostChangedEvent(postId));
+        webSocketService.notifyMediaStatusChanged(postId, media);
+    }
+
+    private void deleteStagingFile(String stagingPath) {
+        if (stagingPath == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(Path.of(stagingPath));
+        } catch (IOException e) {
+            log.warn("Không thể xóa file tạm {}", stagingPath, e);
+        }
+    }
+}
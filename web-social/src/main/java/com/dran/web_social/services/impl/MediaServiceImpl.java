@@ -1,26 +1,50 @@
 package com.dran.web_social.services.impl;
 
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.util.Collection;
+import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
 
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.multipart.MultipartFile;
 
+import com.dran.web_social.custom.exception.ServiceUnavailableException;
+import com.dran.web_social.dto.projection.MediaAsset;
 import com.dran.web_social.models.Media;
+import com.dran.web_social.models.MediaDeletionOutbox;
+import com.dran.web_social.models.MediaDeletionOutbox.OutboxStatus;
 import com.dran.web_social.models.Post;
+import com.dran.web_social.repositories.MediaDeletionOutboxRepository;
 import com.dran.web_social.repositories.MediaRepository;
 import com.dran.web_social.repositories.PostRepository;
-import com.dran.web_social.services.CloudService;
+import com.dran.web_social.services.ImageProcessingService;
 import com.dran.web_social.services.MediaService;
+import com.dran.web_social.utils.HashUtil;
+import com.dran.web_social.utils.MediaTypeUtil;
 
 @Service
 @RequiredArgsConstructor
+@Slf4j
 public class MediaServiceImpl implements MediaService {
-    private final CloudService cloudService;
+    private final ImageProcessingService imageProcessingService;
     private final MediaRepository mediaRepository;
     private final PostRepository postRepository;
+    private final MediaDeletionOutboxRepository mediaDeletionOutboxRepository;
+    private final TransactionTemplate transactionTemplate;
 
     @Override
     public Media uploadMedia(Long postId, MultipartFile file) {
@@ -30,15 +54,20 @@ public class MediaServiceImpl implements MediaService {
 
             Map<String, String> result;
 
-            result = cloudService.uploadFile(file);
+            result = uploadDeduplicated(file);
 
             Media media = new Media();
             media.setUrl(result.get("url"));
             media.setPublicId(result.get("public_id"));
-            media.setType(file.getContentType().split("/")[0]);
+            media.setContentHash(result.get("content_hash"));
+            media.setType(MediaTypeUtil.mediaType(file.getContentType()));
+            media.setStatus(Media.MediaStatus.READY);
             media.setPost(post);
 
-            return mediaRepository.save(media);
+            return transactionTemplate.execute(status -> {
+                reserveAssets(List.of(media.getPublicId()));
+                return mediaRepository.save(media);
+            });
         } catch (IOException e) {
             e.printStackTrace();
             throw new RuntimeException("Error uploading file");
@@ -46,35 +75,134 @@ public class MediaServiceImpl implements MediaService {
     }
 
     @Override
+    @Transactional
     public void deleteMedia(Long mediaId) {
         Media media = mediaRepository.findById(mediaId)
                 .orElseThrow(() -> new RuntimeException("Media not found"));
 
-        cloudService.deleteFile(media.getPublicId());
         mediaRepository.delete(media);
+        scheduleAssetDeletion(media.getPublicId(), media.getType());
     }
 
     @Override
+    @Transactional
     public Media updateMedia(Long mediaId, MultipartFile newFile) {
         try {
             Media media = mediaRepository.findById(mediaId)
                     .orElseThrow(() -> new RuntimeException("Media not found"));
 
-            cloudService.deleteFile(media.getPublicId());
+            String oldPublicId = media.getPublicId();
+            String oldType = media.getType();
 
             Map<String, String> result = null;
 
-            result = cloudService.uploadFile(newFile);
+            result = uploadDeduplicated(newFile);
 
             media.setUrl(result.get("url"));
             media.setPublicId(result.get("public_id"));
-            media.setType(newFile.getContentType().split("/")[0]);
+            media.setContentHash(result.get("content_hash"));
+            media.setType(MediaTypeUtil.mediaType(newFile.getContentType()));
 
-            return mediaRepository.save(media);
+            reserveAssets(List.of(media.getPublicId()));
+            Media updatedMedia = mediaRepository.save(media);
+            scheduleAssetDeletion(oldPublicId, oldType);
+            return updatedMedia;
         } catch (IOException e) {
             e.printStackTrace();
             throw new RuntimeException("Error uploading file");
         }
     }
 
+    @Override
+    public Map<String, String> uploadDeduplicated(MultipartFile file) throws IOException {
+        try (InputStream input = file.getInputStream()) {
+            return uploadHashing(input, file.getContentType(), file.getSize());
+        }
+    }
+
+    @Override
+    public Map<String, String> uploadDeduplicated(Path path, String contentType, String contentHash)
+            throws IOException {
+        if (contentHash == null) {
+            try (InputStream input = Files.newInputStream(path)) {
+                return uploadHashing(input, contentType, Files.size(path));
+            }
+        }
+        // Hash đã được tính lúc lưu file tạm nên kiểm tra trùng được trước khi upload
+        String type = MediaTypeUtil.mediaType(contentType);
+        Optional<Map<String, String>> existing = findExisting(contentHash, type);
+        if (existing.isPresent()) {
+            return existing.get();
+        }
+        return withContentHash(imageProcessingService.uploadImage(path, contentType), contentHash, type);
+    }
+
+    // File chỉ được đọc một lần: hash được tính bằng DigestInputStream trong lúc upload. Vì hash chỉ có sau khi
+    // upload xong, asset trùng được phát hiện sau đó và bản vừa upload được đưa vào outbox để xóa
+    private Map<String, String> uploadHashing(InputStream input, String contentType, long size) throws IOException {
+        MessageDigest digest = HashUtil.newSha256();
+        DigestInputStream hashing = new DigestInputStream(input, digest);
+        Map<String, String> uploaded = imageProcessingService.uploadImage(hashing, contentType, size);
+        // Decoder có thể dừng trước cuối file (sau marker kết thúc ảnh), phần còn lại vẫn phải được hash
+        hashing.transferTo(OutputStream.nullOutputStream());
+        String contentHash = HashUtil.hex(digest);
+        String type = MediaTypeUtil.mediaType(contentType);
+
+        Optional<Map<String, String>> existing = findExisting(contentHash, type);
+        if (existing.isPresent()) {
+            if (!existing.get().get("public_id").equals(uploaded.get("public_id"))) {
+                scheduleAssetDeletion(uploaded.get("public_id"), type);
+            }
+            return existing.get();
+        }
+        return withContentHash(uploaded, contentHash, type);
+    }
+
+    @Override
+    public void scheduleAssetDeletion(String publicId, String mediaType) {
+        if (publicId == null) {
+            return;
+        }
+        mediaDeletionOutboxRepository.save(MediaDeletionOutbox.builder()
+                .publicId(publicId)
+                .mediaType(mediaType)
+                .status(OutboxStatus.PENDING)
+                .attempts(0)
+                .build());
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void reserveAssets(Collection<String> publicIds) {
+        List<String> ids = publicIds.stream().filter(Objects::nonNull).distinct().toList();
+        if (ids.isEmpty()) {
+            return;
+        }
+        // Khóa theo public_id nên dispatcher không thể xác nhận xóa các asset này cho tới khi media mới được commit
+        boolean deleting = mediaDeletionOutboxRepository.findByPublicIdInForUpdate(ids).stream()
+                .anyMatch(MediaDeletionOutbox::isConfirmed);
+        if (deleting) {
+            throw new ServiceUnavailableException("File đang được xóa trên storage, vui lòng thử lại");
+        }
+    }
+
+    // Không dùng lại asset đang có yêu cầu xóa (kể cả DEAD), tránh dispatcher xóa mất asset vừa được gắn vào
+    // media mới; trường hợp yêu cầu xóa được ghi sau bước này do reserveAssets chặn
+    private Optional<Map<String, String>> findExisting(String contentHash, String type) {
+        return mediaRepository.findFirstByContentHashAndPublicIdIsNotNullOrderByIdAsc(contentHash)
+                .filter(asset -> !mediaDeletionOutboxRepository.existsByPublicId(asset.getPublicId()))
+                .map((MediaAsset asset) -> Map.of(
+                        "url", asset.getUrl(),
+                        "public_id", asset.getPublicId(),
+                        "content_hash", contentHash,
+                        "type", type));
+    }
+
+    private Map<String, String> withContentHash(Map<String, String> result, String contentHash, String type) {
+        return Map.of(
+                "url", result.get("url"),
+                "public_id", result.get("public_id"),
+                "content_hash", contentHash,
+                "type", type);
+    }
 }
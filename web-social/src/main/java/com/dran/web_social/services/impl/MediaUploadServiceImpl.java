@@ -0,0 +1,158 @@
+package com.dran.web_social.services.impl;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import com.dran.web_social.custom.exception.BadRequestException;
+import com.dran.web_social.custom.exception.ServiceUnavailableException;
+import com.dran.web_social.services.MediaService;
+import com.dran.web_social.services.MediaUploadService;
+
+import jakarta.annotation.PreDestroy;
+import lombok.AllArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Upload nhiều file lên storage cùng lúc trên virtual thread. Số upload chạy
+ * đồng thời trên toàn ứng dụng bị giới hạn bởi một semaphore, mỗi file có
+ * timeout riêng tính từ lúc bắt đầu upload.
+ */
+@Service
+@Slf4j
+public class MediaUploadServiceImpl implements MediaUploadService {
+    private final MediaService mediaService;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final Semaphore permits;
+    private final long timeoutMillis;
+
+    @AllArgsConstructor
+    private static class UploadTask {
+        private final Future<Map<String, String>> future;
+        private final long deadline;
+    }
+
+    // Kết quả upload của một lần uploadAll. Upload đang chạy HTTP không dừng khi bị interrupt nên có thể
+    // xong sau khi đã abort: task tự ghi kết quả vào đây, hoặc tự xóa asset nếu batch đã bị abort
+    private static class UploadBatch {
+        private final List<Map<String, String>> completed = new ArrayList<>();
+        private boolean aborted;
+
+        synchronized boolean complete(Map<String, String> result) {
+            if (aborted) {
+                return false;
+            }
+            completed.add(result);
+            return true;
+        }
+
+        synchronized List<Map<String, String>> abort() {
+            aborted = true;
+            return new ArrayList<>(completed);
+        }
+    }
+
+    public MediaUploadServiceImpl(MediaService mediaService,
+            @Value("${app.media.upload.max-concurrency:8}") int maxConcurrency,
+            @Value("${app.media.upload.timeout-seconds:60}") long timeoutSeconds) {
+        this.mediaService = mediaService;
+        this.permits = new Semaphore(maxConcurrency);
+        this.timeoutMillis = TimeUnit.SECONDS.toMillis(timeoutSeconds);
+    }
+
+    @Override
+    public List<Map<String, String>> uploadAll(List<MultipartFile> files) {
+        List<UploadTask> tasks = new ArrayList<>();
+        List<Map<String, String>> uploaded = new ArrayList<>();
+        UploadBatch batch = new UploadBatch();
+        try {
+            for (MultipartFile file : files) {
+                if (!permits.tryAcquire(timeoutMillis, TimeUnit.MILLISECONDS)) {
+                    throw new TimeoutException("Hết thời gian chờ lượt upload cho file " + file.getOriginalFilename());
+                }
+                tasks.add(submit(file, batch));
+            }
+            for (UploadTask task : tasks) {
+                long remaining = task.deadline - System.currentTimeMillis();
+                uploaded.add(task.future.get(Math.max(remaining, 0), TimeUnit.MILLISECONDS));
+            }
+            return uploaded;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw abort(tasks, batch, e);
+        } catch (ExecutionException e) {
+            throw abort(tasks, batch, e.getCause());
+        } catch (TimeoutException e) {
+            throw abort(tasks, batch, e);
+        }
+    }
+
+    @Override
+    public void deleteUploaded(List<Map<String, String>> uploaded) {
+        for (Map<String, String> result : uploaded) {
+            String publicId = result.get("public_id");
+            try {
+                // Asset dùng lại từ media khác vẫn còn tham chiếu nên sẽ không bị xóa
+                mediaService.scheduleAssetDeletion(publicId, result.get("type"));
+            } catch (RuntimeException e) {
+                log.error("Không thể xóa file đã upload với publicId: {}", publicId, e);
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private UploadTask submit(MultipartFile file, UploadBatch batch) {
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        try {
+            Future<Map<String, String>> future = executor.submit(() -> {
+                try {
+                    Map<String, String> result = mediaService.uploadDeduplicated(file);
+                    if (!batch.complete(result)) {
+                        // Batch đã bị abort trong lúc file này còn upload: không ai nhận kết quả nên tự dọn.
+                        // Bỏ cờ interrupt do cancel(true) để việc ghi outbox xóa asset không bị ngắt giữa chừng
+                        boolean interrupted = Thread.interrupted();
+                        deleteUploaded(List.of(result));
+                        if (interrupted) {
+                            Thread.currentThread().interrupt();
+                        }
+                    }
+                    return result;
+                } finally {
+                    permits.release();
+                }
+            });
+            return new UploadTask(future, deadline);
+        } catch (RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    // Dọn các file đã upload xong và hủy các upload còn chạy trước khi báo lỗi; upload nào xong sau đó tự dọn
+    private RuntimeException abort(List<UploadTask> tasks, UploadBatch batch, Throwable cause) {
+        List<Map<String, String>> uploaded = batch.abort();
+        tasks.forEach(task -> task.future.cancel(true));
+        deleteUploaded(uploaded);
+        log.error("Upload media thất bại, đã hủy {} file", tasks.size(), cause);
+        // Giữ nguyên lỗi có mã HTTP riêng (ảnh không hợp lệ, server quá tải) để client nhận đúng mã
+        if (cause instanceof BadRequestException || cause instanceof ServiceUnavailableException) {
+            return (RuntimeException) cause;
+        }
+        return new RuntimeException("Lỗi khi upload file", cause);
+    }
+}
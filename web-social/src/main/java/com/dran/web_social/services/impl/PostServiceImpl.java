@@ -3,29 +3,57 @@ package com.dran.web_social.services.impl;
 import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
 import org.springframework.security.access.AccessDeniedException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.multipart.MultipartFile;
 
+import com.dran.web_social.cache.PostResponseCache;
 import com.dran.web_social.custom.exception.ResourceNotFoundException;
+import com.dran.web_social.dto.projection.PostMediaRow;
+import com.dran.web_social.dto.projection.PostSummary;
 import com.dran.web_social.dto.request.PostRequest;
+import com.dran.web_social.dto.response.CursorPageResponse;
+import com.dran.web_social.dto.response.MediaResponse;
 import com.dran.web_social.dto.response.PostResponse;
+import com.dran.web_social.events.LikeCountChangedEvent.Target;
+import com.dran.web_social.events.MediaStagedEvent;
+import com.dran.web_social.events.PostChangedEvent;
+import com.dran.web_social.events.PostCreatedEvent;
+import com.dran.web_social.events.PostDeletedEvent;
 import com.dran.web_social.mappers.PostMapper;
 import com.dran.web_social.models.Media;
 import com.dran.web_social.models.Post;
 import com.dran.web_social.models.User;
+import com.dran.web_social.redis.HotFeedIndexService;
+import com.dran.web_social.redis.LikeCounterService;
+import com.dran.web_social.redis.TimelineIndexService;
+import com.dran.web_social.redis.TimelineIndexService.TimelinePage;
 import com.dran.web_social.repositories.MediaRepository;
 import com.dran.web_social.repositories.PostRepository;
 import com.dran.web_social.repositories.UserRepository;
-import com.dran.web_social.services.CloudService;
 import com.dran.web_social.services.LikeService;
+import com.dran.web_social.services.MediaProcessingService;
 import com.dran.web_social.services.MediaService;
+import com.dran.web_social.services.MediaUploadService;
 import com.dran.web_social.services.PostService;
-import com.dran.web_social.services.UserService;
+import com.dran.web_social.utils.CursorUtil;
+import com.dran.web_social.utils.MediaTypeUtil;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -38,117 +66,208 @@ public class PostServiceImpl implements PostService {
     private final PostRepository postRepository;
     private final UserRepository userRepository;
     private final MediaRepository mediaRepository;
-    private final CloudService cloudService;
     private final PostMapper postMapper;
     private final MediaService mediaService;
+    private final MediaUploadService mediaUploadService;
+    private final MediaProcessingService mediaProcessingService;
     private final LikeService likeService;
-    private final UserService userService;
+    private final TimelineIndexService timelineIndexService;
+    private final HotFeedIndexService hotFeedIndexService;
+    private final PostResponseCache postResponseCache;
+    private final LikeCounterService likeCounterService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TransactionTemplate transactionTemplate;
 
     @Override
-    @Transactional
     public PostResponse createPostWithMedia(String username, PostRequest request, List<MultipartFile> files) {
+        // Upload song song và trước mọi truy vấn: với open-in-view, connection lấy ở truy vấn đầu tiên
+        // được giữ đến hết request, nên tìm user cũng phải nằm trong transaction sau khi upload xong
+        List<Map<String, String>> uploaded = hasFiles(files) ? mediaUploadService.uploadAll(files) : List.of();
+        try {
+            return transactionTemplate.execute(status -> {
+                User user = findUser(username);
+                Post posts = postMapper.postRequestToPost(request);
+                posts.setUser(user);
+                posts.setMedia(new HashSet<>());
+                Post savedPost = postRepository.save(posts);
+                mediaService.reserveAssets(publicIds(uploaded));
+                savedPost.getMedia().addAll(mediaRepository.saveAll(toMediaList(uploaded, files, savedPost)));
+                eventPublisher.publishEvent(
+                        new PostCreatedEvent(savedPost.getId(), user.getId(), savedPost.getCreateAt()));
+                return postMapper.postToPostResponse(savedPost);
+            });
+        } catch (RuntimeException e) {
+            mediaUploadService.deleteUploaded(uploaded);
+            throw e;
+        }
+    }
 
-        User user = userRepository.findByUserName(username)
-                .orElseThrow(() -> new ResourceNotFoundException("Không tìm thấy người dùng với tên: " + username));
+    @Override
+    public PostResponse createPostWithMediaAsync(String username, PostRequest request, List<MultipartFile> files) {
+        if (!hasFiles(files)) {
+            return createPostWithMedia(username, request, files);
+        }
         Post posts = postMapper.postRequestToPost(request);
-        posts.setUser(user);
         posts.setMedia(new HashSet<>());
-        Post savedPost = postRepository.save(posts);
-        PostResponse postResponse = postMapper.postToPostResponse(savedPost);
-        Post post = postRepository.findById(posts.getId())
-                .orElseThrow(
-                        () -> new ResourceNotFoundException("Không tìm thấy bài viết với ID: " + postResponse.getId()));
-        if (files != null && !files.isEmpty()) {
-            List<Media> mediaList = uploadMediaFiles(files, post);
-            post.getMedia().addAll(mediaList);
-            savedPost.getMedia().addAll(mediaList);
-            Post updatedPost = postRepository.save(post);
-            return postMapper.postToPostResponse(updatedPost);
+        List<Media> staged = mediaProcessingService.stage(files, posts);
+        try {
+            return transactionTemplate.execute(status -> {
+                User user = findUser(username);
+                posts.setUser(user);
+                Post savedPost = postRepository.save(posts);
+                List<Media> savedMedia = mediaRepository.saveAll(staged);
+                savedPost.getMedia().addAll(savedMedia);
+                eventPublisher.publishEvent(
+                        new PostCreatedEvent(savedPost.getId(), user.getId(), savedPost.getCreateAt()));
+                eventPublisher.publishEvent(new MediaStagedEvent(savedMedia.stream().map(Media::getId).toList()));
+                return postMapper.postToPostResponse(savedPost);
+            });
+        } catch (RuntimeException e) {
+            mediaProcessingService.discardStaged(staged);
+            throw e;
         }
-
-        return postResponse;
     }
 
     @Override
+    @Transactional(readOnly = true)
     public PostResponse getPostById(Long id) {
-        Post post = postRepository.findById(id)
-                .orElseThrow(() -> new ResourceNotFoundException("Không tìm thấy bài viết với ID: " + id));
-        return postMapper.postToPostResponse(post);
+        PostResponse response = postResponseCache.get(id, () -> {
+            PostSummary summary = postRepository.findSummaryById(id)
+                    .orElseThrow(() -> new ResourceNotFoundException("Không tìm thấy bài viết với ID: " + id));
+            return toResponses(List.of(summary), null).get(0);
+        });
+        return applyPendingLikes(List.of(response)).get(0);
     }
 
     @Override
+    @Transactional(readOnly = true)
     public PostResponse getPostByIdWithLikeStatus(Long id, String username) {
-        Post post = postRepository.findById(id)
-                .orElseThrow(() -> new ResourceNotFoundException("Không tìm thấy bài viết với ID: " + id));
-        return postMapper.postToPostResponseWithLikeStatus(post, username, likeService, userService);
+        // Phần chung lấy từ cache, chỉ isLiked là tính riêng cho người xem
+        PostResponse response = getPostById(id);
+        Set<Long> likedPostIds = resolveLikedPostIds(List.of(id), username);
+        response.setLiked(likedPostIds.contains(id));
+        return response;
     }
 
     @Override
+    @Transactional(readOnly = true)
     public Page<PostResponse> getAllPosts(Pageable pageable) {
-        Page<Post> posts = postRepository.findAll(pageable);
-        return posts.map(postMapper::postToPostResponse);
+        Page<PostSummary> posts = findGlobalPage(pageable);
+        return toResponsePage(posts, null);
     }
 
     @Override
+    @Transactional(readOnly = true)
     public Page<PostResponse> getAllPostsWithLikeStatus(Pageable pageable, String username) {
-        Page<Post> posts = postRepository.findAll(pageable);
-        return posts.map(post -> postMapper.postToPostResponseWithLikeStatus(post, username, likeService, userService));
+        Page<PostSummary> posts = findGlobalPage(pageable);
+        return toResponsePage(posts, username);
     }
 
     @Override
+    @Transactional(readOnly = true)
     public Page<PostResponse> getPostsByUser(String username, Pageable pageable) {
         User user = userRepository.findByUserName(username)
                 .orElseThrow(() -> new ResourceNotFoundException("Không tìm thấy người dùng với tên: " + username));
 
-        Page<Post> posts = postRepository.findByUserId(user.getId(), pageable);
-        return posts.map(postMapper::postToPostResponse);
+        Page<PostSummary> posts = findUserPage(user.getId(), pageable);
+        return toResponsePage(posts, null);
     }
 
     @Override
+    @Transactional(readOnly = true)
     public Page<PostResponse> getPostsByUserWithLikeStatus(String username, Pageable pageable, String currentUsername) {
         User user = userRepository.findByUserName(username)
                 .orElseThrow(() -> new ResourceNotFoundException("Không tìm thấy người dùng với tên: " + username));
 
-        Page<Post> posts = postRepository.findByUserId(user.getId(), pageable);
-        return posts.map(
-                post -> postMapper.postToPostResponseWithLikeStatus(post, currentUsername, likeService, userService));
+        Page<PostSummary> posts = findUserPage(user.getId(), pageable);
+        return toResponsePage(posts, currentUsername);
     }
 
     @Override
-    @Transactional
-    public PostResponse updatePost(String username, Long postId, PostRequest request, List<MultipartFile> files) {
+    @Transactional(readOnly = true)
+    public Page<PostResponse> getHotPosts(Pageable pageable, String currentUsername) {
+        Optional<TimelinePage> page = hotFeedIndexService.findPage(pageable.getOffset(), pageable.getPageSize());
+        if (page.isEmpty()) {
+            // Index hot chưa sẵn sàng thì trả về feed mới nhất
+            Pageable latest = PageRequest.of(pageable.getPageNumber(), pageable.getPageSize(),
+                    Sort.by("createAt").descending());
+            return toResponsePage(findGlobalPage(latest), currentUsername);
+        }
+        return toResponsePage(new PageImpl<>(hydrate(page.get().getPostIds()), pageable, page.get().getTotal()),
+                currentUsername);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public CursorPageResponse<PostResponse> getPostsByCursor(String cursor, int size, String currentUsername) {
+        CursorUtil.Cursor after = CursorUtil.decode(cursor);
+        Pageable limit = PageRequest.of(0, size);
+
+        Slice<PostSummary> posts = after == null
+                ? postRepository.findFeedSlice(limit)
+                : postRepository.findFeedSliceAfter(after.getCreateAt(), after.getId(), limit);
+        return toCursorPage(posts, currentUsername);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public CursorPageResponse<PostResponse> getPostsByUserByCursor(String username, String cursor, int size,
+            String currentUsername) {
         User user = userRepository.findByUserName(username)
                 .orElseThrow(() -> new ResourceNotFoundException("Không tìm thấy người dùng với tên: " + username));
-        Post post = postRepository.findById(postId)
-                .orElseThrow(() -> new ResourceNotFoundException("Không tìm thấy bài viết với ID: " + postId));
-        if (!post.getUser().getUsername().equals(user.getUsername())) {
-            throw new AccessDeniedException("Bạn không có quyền cập nhật bài viết này");
-        }
-        if (request.getContent() != null) {
-            post.setContent(request.getContent());
-        }
-        // Xóa tất cả media cũ nếu có media mới được upload
-        if (files != null && !files.isEmpty()) {
-            // Xóa media cũ trên Cloudinary
-            post.getMedia().forEach(media -> {
-                if (media.getPublicId() != null) {
-                    cloudService.deleteFile(media.getPublicId());
+        CursorUtil.Cursor after = CursorUtil.decode(cursor);
+        Pageable limit = PageRequest.of(0, size);
+
+        Slice<PostSummary> posts = after == null
+                ? postRepository.findUserFeedSlice(user.getId(), limit)
+                : postRepository.findUserFeedSliceAfter(user.getId(), after.getCreateAt(), after.getId(), limit);
+        return toCursorPage(posts, currentUsername);
+    }
+
+    @Override
+    public PostResponse updatePost(String username, Long postId, PostRequest request, List<MultipartFile> files) {
+        // Kiểm tra quyền nằm trong transaction sau khi upload (xem createPostWithMedia); nếu không có quyền
+        // thì file vừa upload được xóa ở khối catch
+        List<Map<String, String>> uploaded = hasFiles(files) ? mediaUploadService.uploadAll(files) : List.of();
+        PostResponse response;
+        try {
+            response = transactionTemplate.execute(status -> {
+                User user = findUser(username);
+                Post post = postRepository.findById(postId)
+                        .orElseThrow(() -> new ResourceNotFoundException("Không tìm thấy bài viết với ID: " + postId));
+                if (!post.getUser().getUsername().equals(user.getUsername())) {
+                    throw new AccessDeniedException("Bạn không có quyền cập nhật bài viết này");
                 }
-            });
+                if (request.getContent() != null) {
+                    post.setContent(request.getContent());
+                }
+                // Xóa tất cả media cũ nếu có media mới được upload
+                if (!uploaded.isEmpty()) {
+                    // File cũ trên storage được xóa sau bởi dispatcher outbox, cùng commit với thay đổi này
+                    post.getMedia().forEach(
+                            media -> mediaService.scheduleAssetDeletion(media.getPublicId(), media.getType()));
 
-            // Xóa media cũ khỏi database
-            mediaRepository.deleteAll(post.getMedia());
-            post.getMedia().clear();
+                    // Xóa media cũ khỏi database
+                    mediaRepository.deleteAll(post.getMedia());
+                    post.getMedia().clear();
 
-            // Thêm media mới
-            List<Media> mediaList = uploadMediaFiles(files, post);
-            post.getMedia().addAll(mediaList);
+                    // Thêm media mới
+                    mediaService.reserveAssets(publicIds(uploaded));
+                    post.getMedia().addAll(mediaRepository.saveAll(toMediaList(uploaded, files, post)));
+                }
+
+                Post updatedPost = postRepository.save(post);
+                eventPublisher.publishEvent(new PostChangedEvent(updatedPost.getId()));
+                return postMapper.postToPostResponse(updatedPost);
+            });
+        } catch (RuntimeException e) {
+            mediaUploadService.deleteUploaded(uploaded);
+            throw e;
         }
 
-        Post updatedPost = postRepository.save(post);
-        log.info("Đã cập nhật bài viết với ID: {}", updatedPost.getId());
+        log.info("Đã cập nhật bài viết với ID: {}", postId);
 
-        return postMapper.postToPostResponse(updatedPost);
+        return response;
     }
 
     @Transactional
@@ -162,35 +281,159 @@ public class PostServiceImpl implements PostService {
             throw new AccessDeniedException("Bạn không có quyền cập nhật bài viết này");
         }
 
-        // Xóa tất cả media liên quan trên Cloudinary trước
-        if (post.getMedia() != null && !post.getMedia().isEmpty()) {
-            for (Media media : post.getMedia()) {
-                if (media.getPublicId() != null) {
-                    try {
-                        cloudService.deleteFile(media.getPublicId());
-                    } catch (Exception e) {
-                        log.error("Failed to delete media with publicId: {} for postId: {}",
-                                media.getPublicId(),
-                                postId, e);
-                        throw new RuntimeException("Failed to delete media for postId: " + postId,
-                                e);
-                    }
-                }
-            }
-        }
+        // Ghi yêu cầu xóa file vào outbox cùng transaction, không gọi storage trong lúc giữ lock
+        Set<String> scheduled = new HashSet<>();
+        post.getMedia().stream()
+                .filter(media -> media.getPublicId() != null && scheduled.add(media.getPublicId()))
+                .forEach(media -> mediaService.scheduleAssetDeletion(media.getPublicId(), media.getType()));
         postRepository.deleteMediaByPostId(postId);
         postRepository.deletePostById(postId);
 
+        eventPublisher.publishEvent(new PostDeletedEvent(postId, post.getUser().getId()));
+
     }
 
-    private List<Media> uploadMediaFiles(List<MultipartFile> files, Post post) {
-        List<Media> mediaList = new ArrayList<>();
+    // Feed mặc định (createAt giảm dần) lấy id từ timeline trên Redis rồi load bài viết bằng một query IN
+    private Page<PostSummary> findGlobalPage(Pageable pageable) {
+        if (isTimelineOrder(pageable)) {
+            Optional<Page<PostSummary>> page = timelineIndexService.findGlobalPage(pageable.getOffset(),
+                    pageable.getPageSize()).flatMap(timeline -> hydrateComplete(timeline, pageable));
+            if (page.isPresent()) {
+                return page.get();
+            }
+        }
+        return postRepository.findSummaries(pageable);
+    }
 
-        for (MultipartFile file : files) {
-            Media media = mediaService.uploadMedia(post.getId(), file);
-            mediaList.add(media);
+    private Page<PostSummary> findUserPage(Long userId, Pageable pageable) {
+        if (isTimelineOrder(pageable)) {
+            Optional<Page<PostSummary>> page = timelineIndexService.findUserPage(userId, pageable.getOffset(),
+                    pageable.getPageSize()).flatMap(timeline -> hydrateComplete(timeline, pageable));
+            if (page.isPresent()) {
+                return page.get();
+            }
         }
+        return postRepository.findSummariesByUserId(userId, pageable);
+    }
+
+    private boolean isTimelineOrder(Pageable pageable) {
+        Sort.Order order = pageable.getSort().getOrderFor("createAt");
+        return order != null && order.isDescending() && pageable.getSort().stream().count() == 1;
+    }
+
+    // Index còn id của bài đã bị xóa thì trang sẽ bị thiếu, khi đó để nơi gọi đọc từ database
+    private Optional<Page<PostSummary>> hydrateComplete(TimelinePage timeline, Pageable pageable) {
+        List<PostSummary> posts = hydrate(timeline.getPostIds());
+        if (posts.size() < timeline.getPostIds().size()) {
+            return Optional.empty();
+        }
+        return Optional.of(new PageImpl<>(posts, pageable, timeline.getTotal()));
+    }
 
+    private List<PostSummary> hydrate(List<Long> postIds) {
+        Map<Long, PostSummary> postsById = postRepository.findSummariesByIdIn(postIds).stream()
+                .collect(Collectors.toMap(PostSummary::getId, Function.identity()));
+        // Giữ thứ tự của timeline, bỏ qua id đã bị xóa nhưng index chưa kịp cập nhật
+        return postIds.stream()
+                .map(postsById::get)
+                .filter(Objects::nonNull)
+                .toList();
+    }
+
+    private CursorPageResponse<PostResponse> toCursorPage(Slice<PostSummary> posts, String username) {
+        List<PostSummary> content = posts.getContent();
+        List<PostResponse> responses = applyPendingLikes(toResponses(content, username));
+
+        String nextCursor = null;
+        if (posts.hasNext() && !content.isEmpty()) {
+            PostSummary last = content.get(content.size() - 1);
+            nextCursor = CursorUtil.encode(last.getCreateAt(), last.getId());
+        }
+
+        return CursorPageResponse.<PostResponse>builder()
+                .content(responses)
+                .nextCursor(nextCursor)
+                .hasNext(posts.hasNext())
+                .size(responses.size())
+                .build();
+    }
+
+    private Page<PostResponse> toResponsePage(Page<PostSummary> posts, String username) {
+        return new PageImpl<>(applyPendingLikes(toResponses(posts.getContent(), username)), posts.getPageable(),
+                posts.getTotalElements());
+    }
+
+    // Cộng số like chưa flush xuống database; không làm trong toResponses để cache chỉ giữ giá trị trong database
+    private List<PostResponse> applyPendingLikes(List<PostResponse> responses) {
+        Map<Long, Long> pending = likeCounterService.pendingDeltas(Target.POST,
+                responses.stream().map(PostResponse::getId).toList());
+        responses.forEach(response -> {
+            Long delta = pending.get(response.getId());
+            if (delta != null) {
+                response.setLikesCount((int) Math.max(0, response.getLikesCount() + delta));
+            }
+        });
+        return responses;
+    }
+
+    // Ghép PostResponse từ projection: media của cả trang lấy bằng một query rồi nhóm theo bài viết
+    private List<PostResponse> toResponses(List<PostSummary> summaries, String username) {
+        if (summaries.isEmpty()) {
+            return List.of();
+        }
+        List<Long> postIds = summaries.stream().map(PostSummary::getId).toList();
+        Map<Long, List<MediaResponse>> mediaByPostId = mediaRepository.findRowsByPostIdIn(postIds).stream()
+                .collect(Collectors.groupingBy(PostMediaRow::getPostId,
+                        Collectors.mapping(postMapper::postMediaRowToMediaResponse, Collectors.toList())));
+        Set<Long> likedPostIds = resolveLikedPostIds(postIds, username);
+
+        return summaries.stream()
+                .map(summary -> {
+                    PostResponse response = postMapper.postSummaryToPostResponse(summary,
+                            mediaByPostId.getOrDefault(summary.getId(), List.of()));
+                    response.setLiked(likedPostIds.contains(summary.getId()));
+                    return response;
+                })
+                .toList();
+    }
+
+    // Lấy userId một lần cho cả request, sau đó lấy trạng thái like của cả trang bằng một query IN
+    private Set<Long> resolveLikedPostIds(List<Long> postIds, String username) {
+        if (username == null || postIds.isEmpty()) {
+            return Set.of();
+        }
+        Long userId = userRepository.findIdByUserName(username).orElse(null);
+        if (userId == null) {
+            return Set.of();
+        }
+        return likeService.getLikedPostIds(userId, postIds);
+    }
+
+    private User findUser(String username) {
+        return userRepository.findByUserName(username)
+                .orElseThrow(() -> new ResourceNotFoundException("Không tìm thấy người dùng với tên: " + username));
+    }
+
+    private boolean hasFiles(List<MultipartFile> files) {
+        return files != null && !files.isEmpty();
+    }
+
+    private List<String> publicIds(List<Map<String, String>> uploaded) {
+        return uploaded.stream().map(result -> result.get("public_id")).toList();
+    }
+
+    private List<Media> toMediaList(List<Map<String, String>> uploaded, List<MultipartFile> files, Post post) {
+        List<Media> mediaList = new ArrayList<>();
+        for (int i = 0; i < uploaded.size(); i++) {
+            Media media = new Media();
+            media.setUrl(uploaded.get(i).get("url"));
+            media.setPublicId(uploaded.get(i).get("public_id"));
+            media.setContentHash(uploaded.get(i).get("content_hash"));
+            media.setType(MediaTypeUtil.mediaType(files.get(i).getContentType()));
+            media.setStatus(Media.MediaStatus.READY);
+            media.setPost(post);
+            mediaList.add(media);
+        }
         return mediaList;
     }
 }
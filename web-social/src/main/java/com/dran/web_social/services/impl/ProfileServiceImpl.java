@@ -14,7 +14,7 @@ import com.dran.web_social.models.User;
 import com.dran.web_social.repositories.ProfileRepository;
 import com.dran.web_social.repositories.UserRepository;
 import com.dran.web_social.services.ProfileService;
-import com.dran.web_social.services.CloudService;
+import com.dran.web_social.services.ImageProcessingService;
 import com.dran.web_social.mappers.UserMapper;
 
 import lombok.RequiredArgsConstructor;
@@ -24,7 +24,7 @@ import lombok.RequiredArgsConstructor;
 public class ProfileServiceImpl implements ProfileService {
     private final ProfileRepository profileRepository;
     private final UserMapper userMapper;
-    private final CloudService cloudService;
+    private final ImageProcessingService imageProcessingService;
     private final UserRepository userRepository;
 
     @Override
@@ -66,7 +66,7 @@ public class ProfileServiceImpl implements ProfileService {
         if (request.getBanner() != null) {
             // Upload banner image to cloud
             try {
-                Map<String, String> uploadResult = cloudService.uploadFile(request.getBanner());
+                Map<String, String> uploadResult = imageProcessingService.uploadImage(request.getBanner());
                 profile.setBanner(uploadResult.get("url"));
             } catch (Exception e) {
                 e.printStackTrace();
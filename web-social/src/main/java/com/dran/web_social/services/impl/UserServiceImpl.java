@@ -5,7 +5,7 @@ import com.dran.web_social.dto.response.UserResponse;
 import com.dran.web_social.mappers.UserMapper;
 import com.dran.web_social.models.User;
 import com.dran.web_social.repositories.UserRepository;
-import com.dran.web_social.services.CloudService;
+import com.dran.web_social.services.ImageProcessingService;
 import com.dran.web_social.services.UserService;
 import lombok.extern.slf4j.Slf4j;
 import lombok.RequiredArgsConstructor;
@@ -26,7 +26,7 @@ import org.springframework.transaction.annotation.Transactional;
 public class UserServiceImpl implements UserService {
     private final UserRepository userRepository;
     private final UserMapper userMapper;
-    private final CloudService cloudService; // Thêm dependency
+    private final ImageProcessingService imageProcessingService;
 
     @Override
     public UserResponse getUserById(Long id) {
@@ -103,7 +103,7 @@ public class UserServiceImpl implements UserService {
         if (req.getAvatar() != null) {
             // Upload avatar image to cloud
             try {
-                Map<String, String> uploadResult = cloudService.uploadFile(req.getAvatar());
+                Map<String, String> uploadResult = imageProcessingService.uploadAvatar(req.getAvatar());
                 user.setAvatar(uploadResult.get("url"));
             } catch (Exception e) {
                 log.error("Failed to upload avatar image", e);
@@ -1,7 +1,9 @@
 package com.dran.web_social.services.impl;
 
 import com.dran.web_social.dto.response.CommentResponse;
+import com.dran.web_social.dto.response.MediaResponse;
 import com.dran.web_social.dto.websocket.CommentMessage;
+import com.dran.web_social.dto.websocket.LikeCountMessage;
 import com.dran.web_social.dto.websocket.WebSocketResponse;
 import com.dran.web_social.services.WebSocketService;
 import lombok.RequiredArgsConstructor;
@@ -73,4 +75,31 @@ public class WebSocketServiceImpl implements WebSocketService {
 
                 messagingTemplate.convertAndSend("/topic/post/" + postId + "/comments", response);
         }
-}
\ No newline at end of file
+
+        @Override
+        public void notifyMediaStatusChanged(Long postId, MediaResponse media) {
+                WebSocketResponse<MediaResponse> response = WebSocketResponse.<MediaResponse>builder()
+                                .type("MEDIA_" + media.getStatus())
+                                .data(media)
+                                .success(!"FAILED".equals(media.getStatus()))
+                                .message("Media status changed")
+                                .build();
+
+                messagingTemplate.convertAndSend("/topic/post/" + postId + "/media", response);
+        }
+
+        @Override
+        public void notifyLikeCountChanged(Long postId, int likesCount) {
+                WebSocketResponse<LikeCountMessage> response = WebSocketResponse.<LikeCountMessage>builder()
+                                .type("LIKE_COUNT_CHANGED")
+                                .data(LikeCountMessage.builder()
+                                                .postId(postId)
+                                                .likesCount(likesCount)
+                                                .build())
+                                .success(true)
+                                .message("Like count changed")
+                                .build();
+
+                messagingTemplate.convertAndSend("/topic/post/" + postId + "/likes", response);
+        }
+}
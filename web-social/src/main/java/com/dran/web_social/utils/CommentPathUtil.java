@@ -0,0 +1,28 @@
+package com.dran.web_social.utils;
+
+import java.util.Arrays;
+import java.util.List;
+
+// Materialized path của comment có dạng /12/340/9981/ (từ gốc tới chính comment)
+public class CommentPathUtil {
+    public static final String ROOT = "/";
+    // Độ dài cột comments_post.path
+    public static final int MAX_LENGTH = 512;
+    // Mỗi tầng tối đa 20 ký tự (id Long 19 chữ số và "/"), 25 tầng vẫn vừa MAX_LENGTH;
+    // reply sâu hơn vẫn giữ đúng comment cha nhưng không có path
+    public static final int MAX_DEPTH = 25;
+
+    // Số comment trên path, tính cả chính comment
+    public static int depth(String path) {
+        return ancestorIds(path).size() + 1;
+    }
+
+    // Id các comment tổ tiên, không gồm chính comment
+    public static List<Long> ancestorIds(String path) {
+        List<Long> ids = Arrays.stream(path.split("/"))
+                .filter(segment -> !segment.isEmpty())
+                .map(Long::valueOf)
+                .toList();
+        return ids.subList(0, Math.max(0, ids.size() - 1));
+    }
+}
@@ -9,12 +9,14 @@ import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 public class CommentUtil {
+    // likedCommentIds: các comment (trong topComments và allReplies) mà người xem đã like, lấy sẵn bằng một lần gọi
     public static List<CommentResponse> processCommentsForAPI(List<CommentPost> topComments,
             List<CommentPost> allReplies,
-            Long currentUserId, CommentMapper mapper) {
+            Long currentUserId, Set<Long> likedCommentIds, CommentMapper mapper) {
         // Group all comments by parentId for fast lookup
         Map<Long, List<CommentPost>> repliesMap = allReplies.stream()
                 .filter(c -> c.getParent() != null)
@@ -22,10 +24,11 @@ public class CommentUtil {
 
         List<CommentResponse> result = new ArrayList<>();
         for (CommentPost top : topComments) {
-            CommentResponse topResp = mapper.commentToCommentResponse(top, currentUserId);
+            CommentResponse topResp = mapper.commentToCommentResponse(top, currentUserId, likedCommentIds);
 
             if (!top.getDeleted()) {
-                List<CommentResponse> replies = buildRepliesTree(top.getId(), repliesMap, currentUserId, mapper, 1);
+                List<CommentResponse> replies = buildRepliesTree(top.getId(), repliesMap, currentUserId, likedCommentIds,
+                        mapper, 1);
                 topResp.setReplies(replies);
             } else {
                 topResp.setReplies(List.of());
@@ -40,6 +43,7 @@ public class CommentUtil {
     private static List<CommentResponse> buildRepliesTree(Long parentId,
             Map<Long, List<CommentPost>> repliesMap,
             Long currentUserId,
+            Set<Long> likedCommentIds,
             CommentMapper mapper,
             int currentLevel) {
         List<CommentPost> children = repliesMap.getOrDefault(parentId, List.of());
@@ -53,18 +57,18 @@ public class CommentUtil {
             if (child.getDeleted())
                 continue;
 
-            CommentResponse response = mapper.commentToCommentResponse(child, currentUserId);
+            CommentResponse response = mapper.commentToCommentResponse(child, currentUserId, likedCommentIds);
 
             // Nếu chưa đến cấp 2, đệ quy xử lý tiếp
             if (currentLevel < 2) {
-                List<CommentResponse> childReplies = buildRepliesTree(child.getId(), repliesMap, currentUserId, mapper,
-                        currentLevel + 1);
+                List<CommentResponse> childReplies = buildRepliesTree(child.getId(), repliesMap, currentUserId,
+                        likedCommentIds, mapper, currentLevel + 1);
                 response.setReplies(childReplies);
             } else {
                 // Nếu đang ở cấp 2 → vẫn cần collect các replies cấp sâu hơn, nhưng flatten vào
                 // cùng cấp
-                List<CommentResponse> flattened = buildRepliesTree(child.getId(), repliesMap, currentUserId, mapper,
-                        currentLevel + 1);
+                List<CommentResponse> flattened = buildRepliesTree(child.getId(), repliesMap, currentUserId,
+                        likedCommentIds, mapper, currentLevel + 1);
                 response.setReplies(List.of()); // Không lồng nữa
                 responseList.add(response);
                 responseList.addAll(flattened); // ✅ Flatten replies of replies vào cùng cấp
@@ -0,0 +1,45 @@
+package com.dran.web_social.utils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Date;
+
+import com.dran.web_social.custom.exception.BadRequestException;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Cursor cho keyset pagination: mã hóa cặp (createAt, id) của phần tử cuối
+ * trang thành chuỗi base64 để client gửi lại nguyên vẹn.
+ */
+public class CursorUtil {
+
+    @Getter
+    @AllArgsConstructor
+    public static class Cursor {
+        private final Date createAt;
+        private final Long id;
+    }
+
+    public static String encode(Date createAt, Long id) {
+        String raw = createAt.getTime() + ":" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    // Trả về null khi cursor rỗng (trang đầu tiên)
+    public static Cursor decode(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return null;
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = raw.indexOf(':');
+            long createAt = Long.parseLong(raw.substring(0, separator));
+            long id = Long.parseLong(raw.substring(separator + 1));
+            return new Cursor(new Date(createAt), id);
+        } catch (IllegalArgumentException | IndexOutOfBoundsException e) {
+            throw new BadRequestException("Cursor không hợp lệ");
+        }
+    }
+}
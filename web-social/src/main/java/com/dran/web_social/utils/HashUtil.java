@@ -0,0 +1,35 @@
+package com.dran.web_social.utils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+public class HashUtil {
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    // SHA-256 dạng hex, đọc stream theo từng buffer nên không giữ cả file trong heap
+    public static String sha256Hex(InputStream input) throws IOException {
+        MessageDigest digest = newSha256();
+        byte[] buffer = new byte[BUFFER_SIZE];
+        int read;
+        while ((read = input.read(buffer)) != -1) {
+            digest.update(buffer, 0, read);
+        }
+        return hex(digest);
+    }
+
+    // Dùng với DigestInputStream để tính hash trong lúc stream được đọc cho việc khác (copy, upload)
+    public static MessageDigest newSha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 không được hỗ trợ", e);
+        }
+    }
+
+    public static String hex(MessageDigest digest) {
+        return HexFormat.of().formatHex(digest.digest());
+    }
+}
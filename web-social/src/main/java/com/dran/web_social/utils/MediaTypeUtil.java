@@ -0,0 +1,15 @@
+package com.dran.web_social.utils;
+
+public class MediaTypeUtil {
+    public static final String DEFAULT_CONTENT_TYPE = "application/octet-stream";
+
+    // Client có thể không gửi Content-Type cho một part, khi đó coi như file nhị phân
+    public static String contentTypeOrDefault(String contentType) {
+        return contentType == null || contentType.isBlank() ? DEFAULT_CONTENT_TYPE : contentType;
+    }
+
+    // Loại media (image, video, ...) là phần trước dấu "/" của content type
+    public static String mediaType(String contentType) {
+        return contentTypeOrDefault(contentType).split("/")[0].trim().toLowerCase();
+    }
+}
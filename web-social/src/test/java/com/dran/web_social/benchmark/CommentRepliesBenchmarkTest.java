@@ -0,0 +1,190 @@
+package com.dran.web_social.benchmark;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.dran.web_social.dto.response.CommentResponse;
+import com.dran.web_social.services.CommentService;
+import com.dran.web_social.support.AbstractIntegrationTest;
+import com.dran.web_social.support.TestData;
+
+import jakarta.persistence.EntityManagerFactory;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Chi phí một trang comment không phụ thuộc tổng số comment của bài viết: hai
+ * bài viết có cùng trang đầu (các thread rất rộng và sâu), bài thứ hai có thêm
+ * 50k comment ngoài trang đó, phải tốn cùng số câu lệnh và entity mỗi trang.
+ * Số reply load kèm trang cũng phải dừng ở ngân sách per-thread/per-page thay
+ * vì nhân lên theo per-parent-limit qua mỗi tầng. Chạy riêng bằng
+ * mvn test -Dtest.excludedGroups= -Dgroups=benchmark.
+ */
+@Tag("benchmark")
+@Slf4j
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class CommentRepliesBenchmarkTest extends AbstractIntegrationTest {
+    private static final int THREADS = 20;
+    private static final int BRANCHING = 5;
+    private static final int DEPTH = 4;
+    // 2500 thread cũ hơn trang đầu, mỗi thread 1 comment gốc và 19 reply: 50k comment
+    private static final int EXTRA_THREADS = 2_500;
+    private static final int EXTRA_REPLIES = 19;
+    private static final int BATCH_SIZE = 5_000;
+    private static final int WARMUP_ITERATIONS = 10;
+    private static final int MEASURED_ITERATIONS = 50;
+
+    @Autowired
+    private CommentService commentService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Value("${app.comments.replies.per-thread-limit:50}")
+    private int repliesPerThread;
+
+    @Value("${app.comments.replies.per-page-limit:300}")
+    private int repliesPerPage;
+
+    private long smallPostId;
+    private long largePostId;
+    private long nextId;
+    private final List<Object[]> rows = new ArrayList<>();
+
+    @BeforeAll
+    void seed() {
+        TestData data = new TestData(jdbcTemplate);
+        long userId = data.insertUser("bench_comments");
+        long now = System.currentTimeMillis();
+        smallPostId = data.insertPost(userId, "benchmark post", 0, new Timestamp(now));
+        largePostId = data.insertPost(userId, "benchmark post with history", 0, new Timestamp(now));
+        nextId = jdbcTemplate.queryForObject("SELECT COALESCE(MAX(id), 0) + 1 FROM comments_post", Long.class);
+
+        seedFirstPage(smallPostId, userId, now);
+        seedFirstPage(largePostId, userId, now);
+        // Thread cũ hơn mọi thread của trang đầu nên nằm ở các trang sau
+        long older = now - TimeUnit.DAYS.toMillis(1);
+        for (int t = 0; t < EXTRA_THREADS; t++) {
+            long createAt = older - t * 1000L;
+            long rootId = add(largePostId, userId, null, null, 0, createAt);
+            for (int r = 0; r < EXTRA_REPLIES; r++) {
+                add(largePostId, userId, rootId, "/" + rootId + "/", 1, createAt + r + 1);
+            }
+        }
+        flush();
+    }
+
+    @Test
+    void pageCostDoesNotDependOnTotalComments() {
+        Result small = measure("trang đầu, chỉ có các thread của trang", smallPostId);
+        Result large = measure("trang đầu, thêm " + EXTRA_THREADS * (EXTRA_REPLIES + 1) + " comment", largePostId);
+
+        assertThat(large.statements).isEqualTo(small.statements);
+        assertThat(large.entities).isEqualTo(small.entities);
+        assertThat(large.replies).isEqualTo(small.replies);
+    }
+
+    private Result measure(String name, long postId) {
+        PageRequest page = PageRequest.of(0, THREADS);
+        for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+            commentService.getCommentsByPostId(postId, page, null);
+        }
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        long start = System.nanoTime();
+        Page<CommentResponse> comments = null;
+        for (int i = 0; i < MEASURED_ITERATIONS; i++) {
+            comments = commentService.getCommentsByPostId(postId, page, null);
+        }
+        long elapsed = System.nanoTime() - start;
+
+        int total = 0;
+        for (CommentResponse thread : comments.getContent()) {
+            int replies = countReplies(thread);
+            assertThat(replies).isLessThanOrEqualTo(repliesPerThread);
+            total += replies;
+        }
+        assertThat(total).isLessThanOrEqualTo(repliesPerPage);
+
+        Result result = new Result(elapsed / MEASURED_ITERATIONS,
+                statistics.getPrepareStatementCount() / MEASURED_ITERATIONS,
+                statistics.getEntityLoadCount() / MEASURED_ITERATIONS, total);
+        log.info("{}: {} thread, {} reply/trang, {} µs/trang, {} câu lệnh/trang, {} entity/trang", name, THREADS,
+                total, TimeUnit.NANOSECONDS.toMicros(result.nanosPerPage), result.statements, result.entities);
+        return result;
+    }
+
+    // Mỗi thread có 5 + 25 + 125 + 625 = 780 reply, comment gốc mới nhất của bài viết
+    private void seedFirstPage(long postId, long userId, long now) {
+        for (int t = 0; t < THREADS; t++) {
+            long createAt = now - t * 60_000L;
+            long rootId = add(postId, userId, null, null, 0, createAt);
+            List<Long> level = List.of(rootId);
+            List<String> paths = List.of("/" + rootId + "/");
+            for (int depth = 1; depth <= DEPTH; depth++) {
+                List<Long> next = new ArrayList<>();
+                List<String> nextPaths = new ArrayList<>();
+                for (int i = 0; i < level.size(); i++) {
+                    for (int b = 0; b < BRANCHING; b++) {
+                        long id = add(postId, userId, level.get(i), paths.get(i), Math.min(depth, 2),
+                                createAt + next.size() + 1);
+                        next.add(id);
+                        nextPaths.add(paths.get(i) + id + "/");
+                    }
+                }
+                level = next;
+                paths = nextPaths;
+            }
+        }
+    }
+
+    // Id gán sẵn để ghi theo lô mà vẫn dựng được path
+    private long add(long postId, long userId, Long parentId, String parentPath, int level, long createAt) {
+        long id = nextId++;
+        Timestamp time = new Timestamp(createAt);
+        rows.add(new Object[] { id, level, postId, userId, parentId,
+                (parentPath == null ? "/" : parentPath) + id + "/", time, time });
+        if (rows.size() >= BATCH_SIZE) {
+            flush();
+        }
+        return id;
+    }
+
+    private void flush() {
+        jdbcTemplate.batchUpdate("INSERT INTO comments_post (id, content, level, likes_count, replies_count, "
+                + "deleted, post_id, user_id, parent_id, path, create_at, update_at) "
+                + "VALUES (?, 'comment', ?, 0, 0, false, ?, ?, ?, ?, ?, ?)", rows);
+        rows.clear();
+    }
+
+    private int countReplies(CommentResponse comment) {
+        int count = 0;
+        if (comment.getReplies() != null) {
+            for (CommentResponse reply : comment.getReplies()) {
+                count += 1 + countReplies(reply);
+            }
+        }
+        return count;
+    }
+
+    private record Result(long nanosPerPage, long statements, long entities, int replies) {
+    }
+}
@@ -0,0 +1,126 @@
+package com.dran.web_social.benchmark;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.lang.management.ManagementFactory;
+import java.sql.Timestamp;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.dran.web_social.dto.response.PostResponse;
+import com.dran.web_social.mappers.PostMapper;
+import com.dran.web_social.repositories.PostRepository;
+import com.dran.web_social.services.PostService;
+import com.dran.web_social.support.AbstractIntegrationTest;
+import com.dran.web_social.support.TestData;
+
+import com.sun.management.ThreadMXBean;
+
+import jakarta.persistence.EntityManagerFactory;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * So sánh feed dựng từ projection (PostSummary + media theo lô) với cách cũ:
+ * load entity Post rồi map bằng postMapper::postToPostResponse: thời gian,
+ * số câu lệnh, số entity và số byte cấp phát trên heap mỗi trang (đo bằng
+ * ThreadMXBean của thread chạy test, cả hai cách đều chạy trên thread này).
+ * Chạy riêng bằng mvn test -Dtest.excludedGroups= -Dgroups=benchmark.
+ */
+@Tag("benchmark")
+@Slf4j
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class FeedProjectionBenchmarkTest extends AbstractIntegrationTest {
+    private static final int AUTHORS = 50;
+    private static final int POSTS_PER_AUTHOR = 40;
+    private static final int PAGE_SIZE = 50;
+    private static final int WARMUP_ITERATIONS = 20;
+    private static final int MEASURED_ITERATIONS = 100;
+
+    @Autowired
+    private PostService postService;
+
+    @Autowired
+    private PostRepository postRepository;
+
+    @Autowired
+    private PostMapper postMapper;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @BeforeAll
+    void seed() {
+        TestData data = new TestData(jdbcTemplate);
+        long now = System.currentTimeMillis();
+        for (int a = 0; a < AUTHORS; a++) {
+            long userId = data.insertUser("bench_feed_" + a);
+            for (int p = 0; p < POSTS_PER_AUTHOR; p++) {
+                long postId = data.insertPost(userId, "benchmark post " + p, p,
+                        new Timestamp(now - (a * POSTS_PER_AUTHOR + p) * 1000L));
+                data.insertMedia(postId, "bench-" + postId + "-0");
+                data.insertMedia(postId, "bench-" + postId + "-1");
+            }
+        }
+    }
+
+    @Test
+    void projectionFeedIsCheaperThanEntityMapping() {
+        Pageable page = PageRequest.of(0, PAGE_SIZE, Sort.by("id").descending());
+
+        Result entity = measure("entity + postToPostResponse", () -> transactionTemplate.execute(
+                status -> postRepository.findAll(page).map(postMapper::postToPostResponse).getContent()));
+        Result projection = measure("projection", () -> postService.getAllPosts(page).getContent());
+
+        assertThat(projection.statements).isLessThan(entity.statements);
+        assertThat(projection.allocatedBytes).isLessThan(entity.allocatedBytes);
+    }
+
+    private Result measure(String name, Supplier<List<PostResponse>> feed) {
+        for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+            assertThat(feed.get()).hasSize(PAGE_SIZE);
+        }
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        ThreadMXBean threads = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().threadId();
+        long allocatedBefore = threads.getThreadAllocatedBytes(threadId);
+        long start = System.nanoTime();
+        for (int i = 0; i < MEASURED_ITERATIONS; i++) {
+            feed.get();
+        }
+        long elapsed = System.nanoTime() - start;
+        long allocated = threads.getThreadAllocatedBytes(threadId) - allocatedBefore;
+
+        Result result = new Result(elapsed / MEASURED_ITERATIONS,
+                statistics.getPrepareStatementCount() / MEASURED_ITERATIONS,
+                statistics.getEntityLoadCount() / MEASURED_ITERATIONS,
+                allocated / MEASURED_ITERATIONS);
+        log.info("{}: {} µs/trang, {} KB cấp phát/trang, {} câu lệnh/trang, {} entity/trang", name,
+                TimeUnit.NANOSECONDS.toMicros(result.nanosPerPage), result.allocatedBytes / 1024,
+                result.statements, result.entities);
+        return result;
+    }
+
+    private record Result(long nanosPerPage, long statements, long entities, long allocatedBytes) {
+    }
+}
@@ -0,0 +1,124 @@
+package com.dran.web_social.benchmark;
+
+import java.awt.GradientPaint;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import javax.imageio.ImageIO;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.web.multipart.MultipartFile;
+
+import com.dran.web_social.services.CloudService;
+import com.dran.web_social.services.ImageProcessingService;
+import com.dran.web_social.services.impl.ImageProcessingServiceImpl;
+
+/**
+ * JMH benchmark cho bước decode + xoay + thu nhỏ + re-encode ảnh trước khi
+ * upload, với CloudService không làm gì để chỉ đo phần xử lý ảnh. Chạy bằng
+ * mvn test -Dtest.excludedGroups= -Dgroups=benchmark.
+ */
+@Tag("benchmark")
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = "-Xmx512m")
+public class ImageResizeBenchmarkTest {
+
+    // Ảnh điện thoại 12 MP, ảnh máy ảnh 24 MP và ảnh gần giới hạn 48 MP
+    @Param({ "4032x3024", "6000x4000", "8000x6000" })
+    public String size;
+
+    private Path source;
+    private ImageProcessingService imageProcessingService;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        String[] dimensions = size.split("x");
+        int width = Integer.parseInt(dimensions[0]);
+        int height = Integer.parseInt(dimensions[1]);
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = image.createGraphics();
+        graphics.setPaint(new GradientPaint(0, 0, java.awt.Color.ORANGE, width, height, java.awt.Color.BLUE));
+        graphics.fillRect(0, 0, width, height);
+        graphics.dispose();
+        source = Files.createTempFile("benchmark-", ".jpg");
+        ImageIO.write(image, "jpeg", source.toFile());
+
+        imageProcessingService = new ImageProcessingServiceImpl(new NoopCloudService(), 1, 4, 2048, 2048, 512,
+                0.82f, 50_000_000L, 64_000_000L, 5_000L);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        ((ImageProcessingServiceImpl) imageProcessingService).shutdown();
+        Files.deleteIfExists(source);
+    }
+
+    @Benchmark
+    public Map<String, String> resizeAndEncode() throws IOException {
+        return imageProcessingService.uploadImage(source, "image/jpeg");
+    }
+
+    @Test
+    void runBenchmark() throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(ImageResizeBenchmarkTest.class.getSimpleName())
+                .build()).run();
+    }
+
+    private static class NoopCloudService implements CloudService {
+        private static final Map<String, String> RESULT = Map.of("url", "/benchmark", "public_id", "benchmark");
+
+        @Override
+        public Map<String, String> uploadFile(MultipartFile file) {
+            return RESULT;
+        }
+
+        @Override
+        public Map<String, String> uploadFile(InputStream input, String contentType) {
+            return RESULT;
+        }
+
+        @Override
+        public Map<String, String> uploadFile(Path path, String contentType) {
+            return RESULT;
+        }
+
+        @Override
+        public void deleteFile(String publicId) {
+        }
+
+        @Override
+        public Set<String> deleteFiles(List<String> publicIds, String mediaType) {
+            return Set.copyOf(publicIds);
+        }
+    }
+}
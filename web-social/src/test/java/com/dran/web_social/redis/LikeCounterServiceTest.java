@@ -0,0 +1,81 @@
+package com.dran.web_social.redis;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.sql.Timestamp;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.dran.web_social.events.LikeCountChangedEvent.Target;
+import com.dran.web_social.repositories.PostRepository;
+import com.dran.web_social.support.AbstractIntegrationTest;
+import com.dran.web_social.support.TestData;
+
+/**
+ * Flush counter like phải cộng mỗi delta đúng một lần, kể cả khi key flushing
+ * trên Redis còn sót lại sau khi database đã commit. Profile test giãn lịch
+ * flush định kỳ nên test tự gọi flush().
+ */
+class LikeCounterServiceTest extends AbstractIntegrationTest {
+    private static final String PENDING_KEY = "counter:likes:post";
+    private static final String FLUSHING_KEY = PENDING_KEY + ":flushing";
+
+    @Autowired
+    private LikeCounterService likeCounterService;
+
+    @Autowired
+    private PostRepository postRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private StringRedisTemplate redisTemplate;
+
+    @Test
+    void flushingKeyLeftAfterCommitIsNotAppliedTwice() {
+        long postId = newPost("flush_replay", 0);
+        redisTemplate.opsForHash().increment(PENDING_KEY, Long.toString(postId), 3);
+        likeCounterService.flush();
+        assertThat(likesCount(postId)).isEqualTo(3);
+
+        // Giả lập lần flush trước đã commit nhưng chưa xóa được key flushing
+        String generation = jdbcTemplate.queryForObject(
+                "SELECT generation FROM counter_flush_log ORDER BY id DESC LIMIT 1", String.class);
+        redisTemplate.opsForHash().put(FLUSHING_KEY, Long.toString(postId), "3");
+        redisTemplate.opsForValue().set(FLUSHING_KEY + ":gen", generation);
+        likeCounterService.flush();
+
+        assertThat(likesCount(postId)).isEqualTo(3);
+        assertThat(redisTemplate.hasKey(FLUSHING_KEY)).isFalse();
+    }
+
+    @Test
+    void reconcileDoesNotCountPendingDeltasTwice() {
+        long postId = newPost("reconcile_pending", 0);
+        TestData data = new TestData(jdbcTemplate);
+        data.insertPostLike(postId, data.insertUser("reconcile_liker_1"));
+        data.insertPostLike(postId, data.insertUser("reconcile_liker_2"));
+        // Hai lượt like đã commit nhưng delta vẫn nằm trên Redis chờ flush
+        redisTemplate.opsForHash().increment(PENDING_KEY, Long.toString(postId), 2);
+
+        likeCounterService.reconcile(Target.POST, postId, postId,
+                () -> postRepository.reconcileCountersByIdRange(postId, postId));
+        likeCounterService.flush();
+
+        assertThat(likesCount(postId)).isEqualTo(2);
+    }
+
+    private long newPost(String userName, int likesCount) {
+        TestData data = new TestData(jdbcTemplate);
+        return data.insertPost(data.insertUser(userName), "post", likesCount,
+                new Timestamp(System.currentTimeMillis()));
+    }
+
+    private int likesCount(long postId) {
+        return jdbcTemplate.queryForObject("SELECT likes_count FROM posts WHERE id = ?", Integer.class, postId);
+    }
+}
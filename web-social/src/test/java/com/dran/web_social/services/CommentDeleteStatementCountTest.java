@@ -0,0 +1,102 @@
+package com.dran.web_social.services;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.dran.web_social.support.AbstractIntegrationTest;
+import com.dran.web_social.support.TestData;
+
+import jakarta.persistence.EntityManagerFactory;
+
+/**
+ * Xóa một comment có cây con lớn phải tốn số câu lệnh cố định (UPDATE theo
+ * path), và không bỏ sót comment chưa có path trong lúc backfill.
+ */
+class CommentDeleteStatementCountTest extends AbstractIntegrationTest {
+    private static final int NODES = 10_000;
+    private static final int BRANCHING = 10;
+
+    @Autowired
+    private CommentService commentService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Test
+    void deletingTenThousandNodeSubtreeUsesConstantStatements() {
+        String owner = "subtree_owner_" + System.nanoTime();
+        long rootId = seedTree(owner, NODES, -1);
+
+        long statements = countStatements(owner, rootId);
+
+        assertThat(activeInTree(rootId, NODES)).isZero();
+        assertThat(statements).isLessThanOrEqualTo(10);
+    }
+
+    @Test
+    void deletingSubtreeAlsoDeletesNodesWithoutPath() {
+        String owner = "subtree_partial_" + System.nanoTime();
+        // Từ tầng 2 trở xuống chưa có path, như khi job backfill mới chạy được nửa chừng
+        long rootId = seedTree(owner, 1_000, 2);
+
+        long statements = countStatements(owner, rootId);
+
+        assertThat(activeInTree(rootId, 1_000)).isZero();
+        // Phần không có path đi theo parent_id: mỗi tầng một SELECT và một UPDATE
+        assertThat(statements).isLessThanOrEqualTo(20);
+    }
+
+    private long countStatements(String owner, long rootId) {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        commentService.deleteComment(owner, rootId);
+        return statistics.getPrepareStatementCount();
+    }
+
+    /**
+     * Cây gồm comment gốc và nodes comment con, node i có cha là node (i - 1) / BRANCHING
+     * (node 0 là gốc). Node ở tầng >= nullPathFromDepth (nếu >= 0) để path null.
+     */
+    private long seedTree(String owner, int nodes, int nullPathFromDepth) {
+        TestData data = new TestData(jdbcTemplate);
+        long userId = data.insertUser(owner);
+        long postId = data.insertPost(userId, "thread", 0, new Timestamp(System.currentTimeMillis()));
+        long firstId = jdbcTemplate.queryForObject("SELECT COALESCE(MAX(id), 0) + 1 FROM comments_post", Long.class);
+
+        String[] paths = new String[nodes + 1];
+        int[] depths = new int[nodes + 1];
+        List<Object[]> rows = new ArrayList<>();
+        for (int i = 0; i <= nodes; i++) {
+            long id = firstId + i;
+            Long parentId = i == 0 ? null : firstId + (i - 1) / BRANCHING;
+            String parentPath = i == 0 ? "/" : paths[(i - 1) / BRANCHING];
+            depths[i] = i == 0 ? 0 : depths[(i - 1) / BRANCHING] + 1;
+            paths[i] = parentPath + id + "/";
+            boolean withoutPath = nullPathFromDepth >= 0 && depths[i] >= nullPathFromDepth;
+            rows.add(new Object[] { id, Math.min(depths[i], 2), postId, userId, parentId,
+                    withoutPath ? null : paths[i] });
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO comments_post (id, content, level, likes_count, replies_count, "
+                + "deleted, post_id, user_id, parent_id, path, create_at, update_at) "
+                + "VALUES (?, 'comment', ?, 0, 0, false, ?, ?, ?, ?, NOW(), NOW())", rows);
+        return firstId;
+    }
+
+    // Id trong cây liên tiếp từ gốc nên đếm theo khoảng id
+    private int activeInTree(long rootId, int nodes) {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM comments_post WHERE deleted = false "
+                + "AND id BETWEEN ? AND ?", Integer.class, rootId, rootId + nodes);
+    }
+}
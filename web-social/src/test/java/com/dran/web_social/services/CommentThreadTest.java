@@ -0,0 +1,78 @@
+package com.dran.web_social.services;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.dran.web_social.dto.request.CommentRequest;
+import com.dran.web_social.dto.response.CommentResponse;
+import com.dran.web_social.support.AbstractIntegrationTest;
+import com.dran.web_social.support.TestData;
+import com.dran.web_social.utils.CommentPathUtil;
+
+/**
+ * Chuỗi reply sâu hơn MAX_DEPTH: reply vẫn gắn đúng comment cha, chỉ không có
+ * path; đọc cây con và xóa vẫn thấy các comment đó.
+ */
+class CommentThreadTest extends AbstractIntegrationTest {
+    private static final int CHAIN = CommentPathUtil.MAX_DEPTH + 5;
+
+    @Autowired
+    private CommentService commentService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void repliesBeyondMaxDepthKeepTheirParent() {
+        String owner = "deep_chain_" + System.nanoTime();
+        TestData data = new TestData(jdbcTemplate);
+        long postId = data.insertPost(data.insertUser(owner), "deep", 0, new Timestamp(System.currentTimeMillis()));
+
+        List<Long> ids = new ArrayList<>();
+        Long parentId = null;
+        for (int i = 0; i < CHAIN; i++) {
+            CommentResponse created = commentService.createComment(owner, postId,
+                    new CommentRequest("reply " + i, parentId));
+            assertThat(created.getParentId()).isEqualTo(parentId);
+            ids.add(created.getId());
+            parentId = created.getId();
+        }
+
+        for (int i = 0; i < CHAIN; i++) {
+            String path = jdbcTemplate.queryForObject("SELECT path FROM comments_post WHERE id = ?", String.class,
+                    ids.get(i));
+            if (i < CommentPathUtil.MAX_DEPTH) {
+                assertThat(CommentPathUtil.depth(path)).isEqualTo(i + 1);
+            } else {
+                assertThat(path).isNull();
+            }
+        }
+        assertThat(jdbcTemplate.queryForObject("SELECT replies_count FROM comments_post WHERE id = ?",
+                Integer.class, ids.get(CommentPathUtil.MAX_DEPTH - 1))).isEqualTo(1);
+
+        CommentResponse thread = commentService.getCommentThread(ids.get(0), owner);
+        assertThat(thread.getThreadSize()).isEqualTo(CommentPathUtil.MAX_DEPTH - 1);
+        assertThat(countReplies(thread)).isEqualTo(CHAIN - 1);
+
+        commentService.deleteComment(owner, ids.get(0));
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM comments_post WHERE post_id = ? "
+                + "AND deleted = false", Integer.class, postId)).isZero();
+    }
+
+    private int countReplies(CommentResponse comment) {
+        int count = 0;
+        if (comment.getReplies() != null) {
+            for (CommentResponse reply : comment.getReplies()) {
+                count += 1 + countReplies(reply);
+            }
+        }
+        return count;
+    }
+}
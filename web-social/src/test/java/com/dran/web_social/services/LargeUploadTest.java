@@ -0,0 +1,106 @@
+package com.dran.web_social.services;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.dran.web_social.repositories.MediaDeletionOutboxRepository;
+import com.dran.web_social.repositories.MediaRepository;
+import com.dran.web_social.repositories.PostRepository;
+import com.dran.web_social.services.impl.ImageProcessingServiceImpl;
+import com.dran.web_social.services.impl.LocalStorageCloudService;
+import com.dran.web_social.services.impl.MediaServiceImpl;
+import com.dran.web_social.support.FileMultipartFile;
+import com.dran.web_social.utils.HashUtil;
+
+/**
+ * Upload một file 500 MB qua đường upload thật (MediaService -> ImageProcessingService
+ * -> CloudService) với LocalStorageCloudService thay cho Cloudinary. Test chạy
+ * trong JVM riêng với -Xmx64m (execution "large-upload" trong pom.xml), nên chỉ
+ * qua được khi file được stream theo buffer chứ không đọc cả vào heap.
+ */
+@Tag("large-upload")
+class LargeUploadTest {
+    private static final long FILE_SIZE = 500L * 1024 * 1024;
+    private static final int BLOCK_SIZE = 1024 * 1024;
+
+    @TempDir
+    Path tempDir;
+
+    private MediaService mediaService;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        LocalStorageCloudService cloudService = new LocalStorageCloudService();
+        ReflectionTestUtils.setField(cloudService, "rootDir", tempDir.resolve("storage").toString());
+        ReflectionTestUtils.setField(cloudService, "baseUrl", "/api/v1/media");
+        cloudService.init();
+
+        ImageProcessingService imageProcessingService = new ImageProcessingServiceImpl(cloudService, 1, 4, 2048,
+                2048, 512, 0.82f, 50_000_000L, 64_000_000L, 5_000L);
+        mediaService = new MediaServiceImpl(imageProcessingService, mock(MediaRepository.class),
+                mock(PostRepository.class), mock(MediaDeletionOutboxRepository.class), mock(TransactionTemplate.class));
+    }
+
+    @Test
+    void uploadsFiveHundredMegabytesWithinSmallHeap() throws IOException {
+        Path source = writeLargeFile(tempDir.resolve("large.mp4"));
+        String expectedHash;
+        try (InputStream input = Files.newInputStream(source)) {
+            expectedHash = HashUtil.sha256Hex(input);
+        }
+
+        Map<String, String> result = mediaService.uploadDeduplicated(new FileMultipartFile(source, "video/mp4"));
+
+        assertThat(result.get("content_hash")).isEqualTo(expectedHash);
+        assertThat(result.get("type")).isEqualTo("video");
+        Path stored = storedPath(result.get("public_id"));
+        assertThat(Files.size(stored)).isEqualTo(FILE_SIZE);
+    }
+
+    @Test
+    void uploadsStagedFileWithinSmallHeap() throws IOException {
+        Path source = writeLargeFile(tempDir.resolve("staged.tmp"));
+
+        Map<String, String> result = mediaService.uploadDeduplicated(source, "video/mp4", null);
+
+        assertThat(Files.size(storedPath(result.get("public_id")))).isEqualTo(FILE_SIZE);
+    }
+
+    // Nội dung thay đổi theo từng block để file không bị nén hoặc dedup ở đâu đó
+    private Path writeLargeFile(Path path) throws IOException {
+        byte[] block = new byte[BLOCK_SIZE];
+        try (OutputStream output = Files.newOutputStream(path)) {
+            for (long written = 0; written < FILE_SIZE; written += BLOCK_SIZE) {
+                long blockIndex = written / BLOCK_SIZE;
+                for (int i = 0; i < block.length; i += 8) {
+                    block[i] = (byte) blockIndex;
+                    block[i + 1] = (byte) (blockIndex >>> 8);
+                    block[i + 2] = (byte) i;
+                    block[i + 3] = (byte) (i >>> 8);
+                }
+                output.write(block);
+            }
+        }
+        return path;
+    }
+
+    private Path storedPath(String publicId) {
+        String hash = publicId.substring(0, publicId.indexOf('.'));
+        return tempDir.resolve("storage").resolve(hash.substring(0, 2)).resolve(hash.substring(2, 4))
+                .resolve(publicId);
+    }
+}
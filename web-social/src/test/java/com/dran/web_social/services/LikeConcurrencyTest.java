@@ -0,0 +1,149 @@
+package com.dran.web_social.services;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntConsumer;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.dran.web_social.redis.LikeCounterService;
+import com.dran.web_social.support.AbstractIntegrationTest;
+import com.dran.web_social.support.TestData;
+
+/**
+ * Nhiều thread cùng like/unlike một bài viết: sau khi flush, likes_count phải
+ * bằng đúng số dòng like, không lệch vì request trùng lặp hay index like trên
+ * Redis bị cũ.
+ */
+class LikeConcurrencyTest extends AbstractIntegrationTest {
+    private static final int USERS = 50;
+    private static final int DUPLICATES = 8;
+
+    @Autowired
+    private LikeService likeService;
+
+    @Autowired
+    private LikeCounterService likeCounterService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private ExecutorService executor;
+    private long postId;
+    private final List<Long> userIds = new ArrayList<>();
+    private final List<String> userNames = new ArrayList<>();
+
+    @BeforeEach
+    void seed() {
+        executor = Executors.newFixedThreadPool(16);
+        TestData data = new TestData(jdbcTemplate);
+        String prefix = "like_stress_" + System.nanoTime() + "_";
+        long authorId = data.insertUser(prefix + "author");
+        postId = data.insertPost(authorId, "hot post", 0, new Timestamp(System.currentTimeMillis()));
+        for (int i = 0; i < USERS; i++) {
+            userNames.add(prefix + i);
+            userIds.add(data.insertUser(prefix + i));
+        }
+    }
+
+    @AfterEach
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void likesCountMatchesRowsUnderConcurrentRequests() throws Exception {
+        // Mỗi user like DUPLICATES lần cùng lúc (client retry, double click)
+        hammer(0, USERS, i -> likeService.likePost(userIds.get(i), postId));
+        assertCount(USERS);
+
+        // Nửa đầu unlike, cũng trùng lặp
+        hammer(0, USERS / 2, i -> likeService.unlikePost(userIds.get(i), postId));
+        assertCount(USERS / 2);
+
+        // Toggle một lần mỗi user: nửa đầu like lại, nửa sau bỏ like
+        List<Call> toggles = new ArrayList<>();
+        for (int i = 0; i < USERS; i++) {
+            int user = i;
+            toggles.add(() -> likeService.toggleLikePost(userNames.get(user), postId));
+        }
+        runAll(toggles);
+        assertCount(USERS / 2);
+        assertThat(likedUserIds()).containsExactlyInAnyOrderElementsOf(userIds.subList(0, USERS / 2));
+    }
+
+    @Test
+    void legacyUnlikedRowIsRevivedByLike() throws Exception {
+        // Dòng is_liked = false do cách toggle cũ để lại (dữ liệu có trước lần dọn lúc khởi động)
+        jdbcTemplate.update("INSERT INTO likes_post (is_liked, post_id, user_id, create_at) VALUES (false, ?, ?, NOW())",
+                postId, userIds.get(0));
+        jdbcTemplate.update("INSERT INTO likes_post (is_liked, post_id, user_id, create_at) VALUES (false, ?, ?, NOW())",
+                postId, userIds.get(1));
+
+        hammer(0, 1, i -> likeService.likePost(userIds.get(i), postId));
+        likeService.toggleLikePost(userNames.get(1), postId);
+
+        assertCount(2);
+        assertThat(likedUserIds()).containsExactlyInAnyOrder(userIds.get(0), userIds.get(1));
+    }
+
+    private void hammer(int from, int to, IntConsumer action) throws Exception {
+        List<Call> calls = new ArrayList<>();
+        for (int i = from; i < to; i++) {
+            int user = i;
+            for (int d = 0; d < DUPLICATES; d++) {
+                calls.add(() -> action.accept(user));
+            }
+        }
+        runAll(calls);
+    }
+
+    // Tất cả thread chờ một hiệu lệnh rồi chạy cùng lúc để tăng khả năng đụng nhau
+    private void runAll(List<Call> calls) throws Exception {
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        for (Call call : calls) {
+            futures.add(executor.submit(() -> {
+                start.await();
+                call.run();
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(60, TimeUnit.SECONDS);
+        }
+    }
+
+    private void assertCount(int expected) {
+        likeCounterService.flush();
+        int rows = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM likes_post WHERE post_id = ? AND is_liked = true", Integer.class, postId);
+        int likesCount = jdbcTemplate.queryForObject(
+                "SELECT likes_count FROM posts WHERE id = ?", Integer.class, postId);
+        assertThat(rows).isEqualTo(expected);
+        assertThat(likesCount).isEqualTo(expected);
+    }
+
+    private List<Long> likedUserIds() {
+        return jdbcTemplate.queryForList(
+                "SELECT user_id FROM likes_post WHERE post_id = ? AND is_liked = true", Long.class, postId);
+    }
+
+    @FunctionalInterface
+    private interface Call {
+        void run();
+    }
+}
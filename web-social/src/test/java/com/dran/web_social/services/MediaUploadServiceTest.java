@@ -0,0 +1,75 @@
+package com.dran.web_social.services;
+
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.web.multipart.MultipartFile;
+
+import com.dran.web_social.custom.exception.BadRequestException;
+import com.dran.web_social.services.impl.MediaUploadServiceImpl;
+
+/**
+ * Upload đang chạy khi batch bị hủy (một file khác lỗi) vẫn có thể xong sau đó
+ * vì HTTP upload không dừng khi bị interrupt: asset của nó phải được xóa.
+ */
+class MediaUploadServiceTest {
+    private final MediaService mediaService = mock(MediaService.class);
+    private final MediaUploadServiceImpl uploadService = new MediaUploadServiceImpl(mediaService, 4, 60);
+
+    @AfterEach
+    void shutdown() {
+        uploadService.shutdown();
+    }
+
+    @Test
+    void uploadFinishingAfterAbortIsDeleted() throws Exception {
+        MultipartFile slow = new MockMultipartFile("slow", "slow.jpg", "image/jpeg", new byte[] { 1 });
+        MultipartFile broken = new MockMultipartFile("broken", "broken.jpg", "image/jpeg", new byte[] { 2 });
+        CountDownLatch aborted = new CountDownLatch(1);
+        when(mediaService.uploadDeduplicated(slow)).thenAnswer(invocation -> {
+            // Giống HTTP client không phản hồi interrupt: chờ tới khi batch đã bị hủy rồi mới xong
+            while (aborted.getCount() > 0) {
+                Thread.onSpinWait();
+            }
+            return Map.of("public_id", "late-asset", "type", "image");
+        });
+        when(mediaService.uploadDeduplicated(broken)).thenThrow(new BadRequestException("Ảnh không hợp lệ"));
+
+        assertThatThrownBy(() -> uploadService.uploadAll(List.of(broken, slow)))
+                .isInstanceOf(BadRequestException.class);
+        aborted.countDown();
+
+        verify(mediaService, timeout(5_000)).scheduleAssetDeletion("late-asset", "image");
+    }
+
+    @Test
+    void completedUploadsAreDeletedOnAbort() throws Exception {
+        MultipartFile ok = new MockMultipartFile("ok", "ok.jpg", "image/jpeg", new byte[] { 1 });
+        MultipartFile broken = new MockMultipartFile("broken", "broken.jpg", "image/jpeg", new byte[] { 2 });
+        CountDownLatch okDone = new CountDownLatch(1);
+        when(mediaService.uploadDeduplicated(ok)).thenAnswer(invocation -> {
+            okDone.countDown();
+            return Map.of("public_id", "done-asset", "type", "image");
+        });
+        when(mediaService.uploadDeduplicated(broken)).thenAnswer(invocation -> {
+            okDone.await();
+            throw new BadRequestException("Ảnh không hợp lệ");
+        });
+
+        assertThatThrownBy(() -> uploadService.uploadAll(List.of(ok, broken)))
+                .isInstanceOf(BadRequestException.class);
+
+        // File đã xong trước khi batch bị hủy được dọn ngay trong abort
+        verify(mediaService).scheduleAssetDeletion("done-asset", "image");
+    }
+}
@@ -0,0 +1,100 @@
+package com.dran.web_social.services;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.sql.Timestamp;
+import java.util.List;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.dran.web_social.dto.response.PostResponse;
+import com.dran.web_social.support.AbstractIntegrationTest;
+import com.dran.web_social.support.TestData;
+
+import jakarta.persistence.EntityManagerFactory;
+
+/**
+ * Số câu lệnh SQL để dựng một trang feed phải cố định, không tăng theo số bài
+ * viết trong trang (không N+1 cho media và trạng thái like).
+ */
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class PostFeedQueryCountTest extends AbstractIntegrationTest {
+    private static final int POSTS = 60;
+    private static final String AUTHOR = "feed_author";
+    private static final String VIEWER = "feed_viewer";
+
+    @Autowired
+    private PostService postService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private StringRedisTemplate redisTemplate;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @BeforeAll
+    void seed() {
+        TestData data = new TestData(jdbcTemplate);
+        long authorId = data.insertUser(AUTHOR);
+        long viewerId = data.insertUser(VIEWER);
+        long now = System.currentTimeMillis();
+        for (int i = 0; i < POSTS; i++) {
+            long postId = data.insertPost(authorId, "post " + i, i % 2, new Timestamp(now - i * 1000L));
+            data.insertMedia(postId, "feed-" + postId + "-0");
+            data.insertMedia(postId, "feed-" + postId + "-1");
+            if (i % 2 == 1) {
+                data.insertPostLike(postId, viewerId);
+            }
+        }
+    }
+
+    @Test
+    void pageStatementCountDoesNotGrowWithPageSize() {
+        long small = countStatements(5);
+        long large = countStatements(50);
+
+        assertThat(large).isEqualTo(small);
+        assertThat(small).isLessThanOrEqualTo(5);
+    }
+
+    @Test
+    void pageResolvesMediaAndLikeStatus() {
+        Page<PostResponse> page = postService.getPostsByUserWithLikeStatus(AUTHOR,
+                PageRequest.of(0, 10, Sort.by("id").descending()), VIEWER);
+
+        assertThat(page.getContent()).hasSize(10);
+        assertThat(page.getContent()).allSatisfy(post -> {
+            assertThat(post.getMedia()).hasSize(2);
+            assertThat(post.isLiked()).isEqualTo(post.getLikesCount() == 1);
+        });
+    }
+
+    // Đọc feed của một tác giả để không lẫn dữ liệu của test khác; chạy với Redis trống để mỗi lần đo có cùng số lần miss cache
+    private long countStatements(int pageSize) {
+        redisTemplate.execute(connection -> {
+            connection.serverCommands().flushAll();
+            return null;
+        }, true);
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        List<PostResponse> posts = postService.getPostsByUserWithLikeStatus(AUTHOR,
+                PageRequest.of(0, pageSize, Sort.by("id").descending()), VIEWER).getContent();
+
+        assertThat(posts).hasSize(pageSize);
+        return statistics.getPrepareStatementCount();
+    }
+}
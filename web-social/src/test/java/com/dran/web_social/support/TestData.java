@@ -0,0 +1,43 @@
+package com.dran.web_social.support;
+
+import java.sql.Timestamp;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Ghi dữ liệu mẫu thẳng bằng SQL để không kích hoạt event (timeline, cache,
+ * broadcast) và không bị tính vào thống kê câu lệnh của Hibernate.
+ */
+@RequiredArgsConstructor
+public class TestData {
+    private final JdbcTemplate jdbcTemplate;
+
+    public long insertUser(String userName) {
+        jdbcTemplate.update("INSERT INTO users (user_name, enabled, is_verified, create_at, update_at) "
+                + "VALUES (?, true, true, NOW(), NOW())", userName);
+        return jdbcTemplate.queryForObject("SELECT id FROM users WHERE user_name = ?", Long.class, userName);
+    }
+
+    public long insertPost(long userId, String content, int likesCount, Timestamp createAt) {
+        jdbcTemplate.update("INSERT INTO posts (content, likes_count, comments_count, shares_count, user_id, "
+                + "create_at, update_at) VALUES (?, ?, 0, 0, ?, ?, ?)",
+                content, likesCount, userId, createAt, createAt);
+        return lastInsertId();
+    }
+
+    public void insertMedia(long postId, String publicId) {
+        jdbcTemplate.update("INSERT INTO media (url, type, public_id, post_id, status, attempts) "
+                + "VALUES (?, 'image', ?, ?, 'READY', 0)", "/api/v1/media/" + publicId, publicId, postId);
+    }
+
+    public void insertPostLike(long postId, long userId) {
+        jdbcTemplate.update("INSERT INTO likes_post (is_liked, post_id, user_id, create_at) "
+                + "VALUES (true, ?, ?, NOW())", postId, userId);
+    }
+
+    public long lastInsertId() {
+        return jdbcTemplate.queryForObject("SELECT LAST_INSERT_ID()", Long.class);
+    }
+}